@@ -0,0 +1,165 @@
+package com.support.controller;
+
+import com.support.service.CsvImportService;
+import com.support.service.SearchResultCache;
+import com.support.service.UrgencyDetectionService;
+import com.support.service.UrgencyDetectionService.RuleSet;
+import com.support.service.UrgencyMatcher;
+import com.support.service.UrgencyRescoreService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for operational/admin tasks
+ */
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class AdminController {
+
+    private final UrgencyDetectionService urgencyDetectionService;
+    private final UrgencyRescoreService urgencyRescoreService;
+    private final CsvImportService csvImportService;
+    private final SearchResultCache searchResultCache;
+
+    public AdminController(UrgencyDetectionService urgencyDetectionService,
+                           UrgencyRescoreService urgencyRescoreService,
+                           CsvImportService csvImportService,
+                           SearchResultCache searchResultCache) {
+        this.urgencyDetectionService = urgencyDetectionService;
+        this.urgencyRescoreService = urgencyRescoreService;
+        this.csvImportService = csvImportService;
+        this.searchResultCache = searchResultCache;
+    }
+
+    /**
+     * Get the active urgency rule set
+     */
+    @GetMapping("/urgency-rules")
+    public ResponseEntity<Map<String, Object>> getUrgencyRules() {
+        RuleSet ruleSet = urgencyDetectionService.getRuleSet();
+        Map<String, Object> result = describe(ruleSet);
+
+        List<Map<String, Object>> rules = new ArrayList<>();
+        for (UrgencyMatcher.Rule rule : ruleSet.getMatcher().getRules()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("keyword", rule.getKeyword());
+            entry.put("level", rule.getLevel());
+            entry.put("score", rule.getScore());
+            entry.put("reason", rule.getReason());
+            rules.add(entry);
+        }
+        result.put("rules", rules);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Reload urgency rules from the configured file, optionally re-scoring open conversations
+     */
+    @PostMapping("/urgency-rules/reload")
+    public ResponseEntity<Map<String, Object>> reloadUrgencyRules(
+            @RequestParam(defaultValue = "true") boolean rescore) {
+        try {
+            Map<String, Object> result = describe(urgencyDetectionService.reloadRules());
+            if (rescore) {
+                result.put("rescore", urgencyRescoreService.start());
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = describe(urgencyDetectionService.getRuleSet());
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Start re-scoring open conversations with the current rules
+     */
+    @PostMapping("/urgency-rescore")
+    public ResponseEntity<UrgencyRescoreService.Progress> startRescore() {
+        return ResponseEntity.ok(urgencyRescoreService.start());
+    }
+
+    /**
+     * Get progress of the urgency re-scoring job
+     */
+    @GetMapping("/urgency-rescore")
+    public ResponseEntity<UrgencyRescoreService.Progress> getRescoreProgress() {
+        return ResponseEntity.ok(urgencyRescoreService.getProgress());
+    }
+
+    /**
+     * Start importing a CSV export into the running system. Rows that were already
+     * imported are skipped, and an interrupted import of the same file resumes.
+     * The location is the file's name in the import directory (app.csv.import-dir),
+     * e.g. 2024-05-01.csv
+     */
+    @PostMapping("/csv-import")
+    public ResponseEntity<?> importCsv(@RequestParam String location) {
+        try {
+            return ResponseEntity.ok(csvImportService.startImport(location));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "CSV import failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get progress of the running or last CSV import
+     */
+    @GetMapping("/csv-import")
+    public ResponseEntity<CsvImportService.ImportProgress> getImportProgress() {
+        return ResponseEntity.ok(csvImportService.getImportProgress());
+    }
+
+    /**
+     * Data readiness: 200 once startup seeding has finished, 503 while it is
+     * still running. Requests are served either way; this is for probes and
+     * clients that need the full data set.
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, Object>> getReadiness() {
+        boolean ready = csvImportService.isSeeded();
+        Map<String, Object> result = new HashMap<>();
+        result.put("ready", ready);
+        result.put("seeding", csvImportService.getSeedingState());
+        result.put("import", csvImportService.getImportProgress());
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(result);
+    }
+
+    /**
+     * Search result cache size, hit ratio and eviction counters
+     */
+    @GetMapping("/search-cache")
+    public ResponseEntity<Map<String, Object>> getSearchCacheStats() {
+        return ResponseEntity.ok(searchResultCache.getStats());
+    }
+
+    /**
+     * Drop all cached search results
+     */
+    @DeleteMapping("/search-cache")
+    public ResponseEntity<Map<String, Object>> clearSearchCache() {
+        searchResultCache.clear();
+        return ResponseEntity.ok(searchResultCache.getStats());
+    }
+
+    private Map<String, Object> describe(RuleSet ruleSet) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("version", ruleSet.getVersion());
+        result.put("source", ruleSet.getSource());
+        result.put("ruleCount", ruleSet.getRuleCount());
+        result.put("loadedAt", ruleSet.getLoadedAt());
+        return result;
+    }
+}
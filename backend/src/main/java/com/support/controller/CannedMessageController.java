@@ -63,4 +63,14 @@ public class CannedMessageController {
     public ResponseEntity<List<CannedMessageDTO>> searchCannedMessages(@RequestParam String query) {
         return ResponseEntity.ok(cannedMessageService.searchCannedMessages(query));
     }
+
+    /**
+     * Autocomplete canned messages by shortcut or title prefix (e.g. "/gre")
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<CannedMessageDTO>> autocomplete(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(cannedMessageService.autocomplete(prefix, limit));
+    }
 }
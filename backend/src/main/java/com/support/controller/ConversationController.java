@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -24,6 +25,14 @@ import java.util.UUID;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class ConversationController {
 
+    // Response shapes of the list endpoints: full conversations, or compact summaries
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_SUMMARY = "summary";
+
+    // Messages included by /{id}/full: all of them, or only the newest page
+    private static final String MESSAGES_ALL = "all";
+    private static final String MESSAGES_LATEST = "latest";
+
     private final ConversationService conversationService;
 
     public ConversationController(ConversationService conversationService) {
@@ -31,33 +40,78 @@ public class ConversationController {
     }
 
     /**
-     * Get all conversations with optional filters
+     * Get all conversations with optional filters (view=summary for compact items)
      */
     @GetMapping
-    public ResponseEntity<Page<ConversationDTO>> getConversations(
+    public ResponseEntity<?> getConversations(
             @RequestParam(required = false) ConversationStatus status,
             @RequestParam(required = false) UrgencyLevel urgencyLevel,
             @RequestParam(required = false) UUID agentId,
+            @RequestParam(defaultValue = VIEW_FULL) String view,
             @PageableDefault(size = 20, sort = "urgencyScore", direction = Sort.Direction.DESC) Pageable pageable) {
+        if (!isValidView(view)) {
+            return invalidView(view);
+        }
+        if (VIEW_SUMMARY.equalsIgnoreCase(view)) {
+            return ResponseEntity.ok(
+                    conversationService.getConversationSummariesWithFilters(status, urgencyLevel, agentId, pageable)
+            );
+        }
         return ResponseEntity.ok(
                 conversationService.getConversationsWithFilters(status, urgencyLevel, agentId, pageable)
         );
     }
 
     /**
-     * Get open conversations sorted by urgency
+     * Get conversations with optional filters, page by page with a cursor
+     * (pass the returned nextCursor to get the next page)
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getConversationsByCursor(
+            @RequestParam(required = false) ConversationStatus status,
+            @RequestParam(required = false) UrgencyLevel urgencyLevel,
+            @RequestParam(required = false) UUID agentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(conversationService.getConversationsAfter(
+                    status, urgencyLevel, agentId, cursor, size, includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get open conversations sorted by urgency (view=summary for compact items)
      */
     @GetMapping("/open")
-    public ResponseEntity<List<ConversationDTO>> getOpenConversations() {
-        return ResponseEntity.ok(conversationService.getOpenConversations());
+    public ResponseEntity<?> getOpenConversations(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (!isValidView(view)) {
+            return invalidView(view);
+        }
+        if (VIEW_SUMMARY.equalsIgnoreCase(view)) {
+            return ResponseEntity.ok(conversationService.getOpenConversationSummaries(limit));
+        }
+        return ResponseEntity.ok(conversationService.getOpenConversations(limit));
     }
 
     /**
-     * Get unassigned conversations
+     * Get unassigned conversations (view=summary for compact items)
      */
     @GetMapping("/unassigned")
-    public ResponseEntity<List<ConversationDTO>> getUnassignedConversations() {
-        return ResponseEntity.ok(conversationService.getUnassignedConversations());
+    public ResponseEntity<?> getUnassignedConversations(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
+        if (!isValidView(view)) {
+            return invalidView(view);
+        }
+        if (VIEW_SUMMARY.equalsIgnoreCase(view)) {
+            return ResponseEntity.ok(conversationService.getUnassignedConversationSummaries(limit));
+        }
+        return ResponseEntity.ok(conversationService.getUnassignedConversations(limit));
     }
 
     /**
@@ -87,12 +141,24 @@ public class ConversationController {
     }
 
     /**
-     * Get conversation with all messages
+     * Get conversation with all messages, or with mode=latest only the newest
+     * {@code size} (older ones via /api/messages/conversation/{id}/history)
      */
     @GetMapping("/{id}/full")
-    public ResponseEntity<ConversationDTO> getConversationWithMessages(@PathVariable UUID id) {
-        return conversationService.getConversationWithMessages(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<?> getConversationWithMessages(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = MESSAGES_ALL) String mode,
+            @RequestParam(defaultValue = "50") int size) {
+        Optional<ConversationDTO> conversation;
+        if (MESSAGES_LATEST.equalsIgnoreCase(mode)) {
+            conversation = conversationService.getConversationWithLatestMessages(id, size);
+        } else if (MESSAGES_ALL.equalsIgnoreCase(mode)) {
+            conversation = conversationService.getConversationWithMessages(id);
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown mode: " + mode + " (use all or latest)"));
+        }
+        return conversation
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -135,4 +201,12 @@ public class ConversationController {
         stats.put("urgentConversations", conversationService.countUrgentConversations());
         return ResponseEntity.ok(stats);
     }
+
+    private static boolean isValidView(String view) {
+        return VIEW_FULL.equalsIgnoreCase(view) || VIEW_SUMMARY.equalsIgnoreCase(view);
+    }
+
+    private static ResponseEntity<Map<String, String>> invalidView(String view) {
+        return ResponseEntity.badRequest().body(Map.of("error", "Unknown view: " + view + " (use full or summary)"));
+    }
 }
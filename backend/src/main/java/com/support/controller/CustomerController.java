@@ -41,10 +41,12 @@ public class CustomerController {
     }
 
     /**
-     * Search customers by name or email
+     * Search customers by name, email or phone
      */
     @GetMapping("/search")
-    public ResponseEntity<List<CustomerDTO>> searchCustomers(@RequestParam String query) {
-        return ResponseEntity.ok(customerService.searchCustomers(query));
+    public ResponseEntity<List<CustomerDTO>> searchCustomers(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(customerService.searchCustomers(query, limit).getContent());
     }
 }
@@ -3,16 +3,22 @@ package com.support.controller;
 import com.support.dto.MessageDTO;
 import com.support.dto.request.CreateMessageRequest;
 import com.support.dto.request.ReplyMessageRequest;
+import com.support.service.BulkIngestService;
 import com.support.service.MessageService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -24,9 +30,11 @@ import java.util.UUID;
 public class MessageController {
 
     private final MessageService messageService;
+    private final BulkIngestService bulkIngestService;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, BulkIngestService bulkIngestService) {
         this.messageService = messageService;
+        this.bulkIngestService = bulkIngestService;
     }
 
     /**
@@ -38,6 +46,25 @@ public class MessageController {
         return ResponseEntity.status(HttpStatus.CREATED).body(message);
     }
 
+    /**
+     * Bulk-create messages from a streamed CSV (text/csv, with a header row) or
+     * NDJSON (application/x-ndjson) body. Responds with one NDJSON result per row,
+     * streamed as rows are committed.
+     */
+    @PostMapping(value = "/bulk", consumes = {BulkIngestService.CSV, BulkIngestService.NDJSON})
+    public ResponseEntity<?> bulkCreateMessages(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        try {
+            StreamingResponseBody results = bulkIngestService.ingest(body, contentType);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_TYPE, BulkIngestService.NDJSON)
+                    .body(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Add message to existing conversation
      */
@@ -68,6 +95,23 @@ public class MessageController {
         return ResponseEntity.ok(messageService.getMessagesByConversation(conversationId));
     }
 
+    /**
+     * Get a window of a conversation's messages, oldest first: the latest by
+     * default, or older/newer than a cursor from an earlier window
+     */
+    @GetMapping("/conversation/{conversationId}/history")
+    public ResponseEntity<?> getMessageHistory(
+            @PathVariable UUID conversationId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(messageService.getMessageWindow(conversationId, before, after, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Get single message by ID
      */
@@ -87,4 +131,21 @@ public class MessageController {
             @PageableDefault(size = 20) Pageable pageable) {
         return ResponseEntity.ok(messageService.searchMessages(query, pageable));
     }
+
+    /**
+     * Search messages page by page with a cursor (pass the returned nextCursor
+     * to get the next page)
+     */
+    @GetMapping("/search/cursor")
+    public ResponseEntity<?> searchMessagesByCursor(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(messageService.searchMessagesAfter(query, cursor, size, includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 }
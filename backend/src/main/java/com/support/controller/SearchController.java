@@ -1,9 +1,13 @@
 package com.support.controller;
 
+import com.support.dto.CursorPage;
 import com.support.dto.CustomerDTO;
 import com.support.dto.MessageDTO;
 import com.support.service.CustomerService;
+import com.support.service.GlobalSearchService;
 import com.support.service.MessageService;
+import com.support.service.SearchResultCache;
+import com.support.service.SearchResultCache.Source;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
@@ -22,70 +26,129 @@ import java.util.Map;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class SearchController {
 
+    // Response modes for message results: full content, or excerpts with highlight offsets
+    private static final String MODE_FULL = "full";
+    private static final String MODE_SNIPPET = "snippet";
+
     private final MessageService messageService;
     private final CustomerService customerService;
+    private final GlobalSearchService globalSearchService;
+    private final SearchResultCache searchResultCache;
 
-    public SearchController(MessageService messageService, CustomerService customerService) {
+    public SearchController(MessageService messageService,
+                            CustomerService customerService,
+                            GlobalSearchService globalSearchService,
+                            SearchResultCache searchResultCache) {
         this.messageService = messageService;
         this.customerService = customerService;
+        this.globalSearchService = globalSearchService;
+        this.searchResultCache = searchResultCache;
     }
 
     /**
-     * Global search across messages and customers
+     * Global search across messages and customers (mode=snippet returns message
+     * excerpts with highlight offsets instead of full content)
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> globalSearch(
+    public ResponseEntity<?> globalSearch(
             @RequestParam String query,
+            @RequestParam(defaultValue = MODE_FULL) String mode,
             @PageableDefault(size = 10) Pageable pageable) {
-        
-        Map<String, Object> results = new HashMap<>();
-        
+        if (!isValidMode(mode)) {
+            return invalidMode(mode);
+        }
+        boolean snippets = MODE_SNIPPET.equalsIgnoreCase(mode);
+
         // Trim and validate query
         String trimmedQuery = query.trim();
         if (trimmedQuery.isEmpty()) {
+            Map<String, Object> results = new HashMap<>();
             results.put("messages", List.of());
             results.put("messagesTotal", 0L);
             results.put("customers", List.of());
             results.put("customersTotal", 0L);
+            results.put("partial", false);
+            results.put("timedOut", List.of());
             return ResponseEntity.ok(results);
         }
-        
-        // Search messages
-        Page<MessageDTO> messages = messageService.searchMessages(trimmedQuery, pageable);
-        results.put("messages", messages.getContent());
-        results.put("messagesTotal", messages.getTotalElements());
-        
-        // Search customers
-        List<CustomerDTO> customers = customerService.searchCustomers(trimmedQuery);
-        results.put("customers", customers);
-        results.put("customersTotal", (long) customers.size());
-        
-        return ResponseEntity.ok(results);
+
+        // Messages and customers are searched concurrently; partial results are not cached
+        return ResponseEntity.ok(searchResultCache.get(snippets ? "global-snippet" : "global", Source.ALL,
+                trimmedQuery, pageKey(pageable),
+                () -> globalSearchService.search(trimmedQuery, pageable, snippets),
+                results -> !Boolean.TRUE.equals(results.get("partial"))));
     }
 
     /**
-     * Search messages only
+     * Search messages only (mode=snippet returns excerpts with highlight offsets)
      */
     @GetMapping("/messages")
-    public ResponseEntity<Page<MessageDTO>> searchMessages(
+    public ResponseEntity<?> searchMessages(
             @RequestParam String query,
+            @RequestParam(defaultValue = MODE_FULL) String mode,
             @PageableDefault(size = 20) Pageable pageable) {
+        if (!isValidMode(mode)) {
+            return invalidMode(mode);
+        }
         String trimmedQuery = query.trim();
         if (trimmedQuery.isEmpty()) {
             return ResponseEntity.ok(Page.empty());
         }
-        return ResponseEntity.ok(messageService.searchMessages(trimmedQuery, pageable));
+        if (MODE_SNIPPET.equalsIgnoreCase(mode)) {
+            return ResponseEntity.ok(searchResultCache.get("messages-snippet", Source.MESSAGES, trimmedQuery,
+                    pageKey(pageable), () -> messageService.searchMessageSnippets(trimmedQuery, pageable)));
+        }
+        return ResponseEntity.ok(searchResultCache.get("messages", Source.MESSAGES, trimmedQuery, pageKey(pageable),
+                () -> messageService.searchMessages(trimmedQuery, pageable)));
+    }
+
+    /**
+     * Search messages page by page with a cursor (pass the returned nextCursor
+     * to get the next page)
+     */
+    @GetMapping("/messages/cursor")
+    public ResponseEntity<?> searchMessagesByCursor(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        String trimmedQuery = query.trim();
+        if (trimmedQuery.isEmpty()) {
+            return ResponseEntity.ok(new CursorPage<>(List.of(), null, null));
+        }
+        try {
+            String page = cursor + "/" + size + "/" + includeTotal;
+            return ResponseEntity.ok(searchResultCache.get("messages-cursor", Source.MESSAGES, trimmedQuery, page,
+                    () -> messageService.searchMessagesAfter(trimmedQuery, cursor, size, includeTotal)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Search customers only
      */
     @GetMapping("/customers")
-    public ResponseEntity<List<CustomerDTO>> searchCustomers(@RequestParam String query) {
+    public ResponseEntity<List<CustomerDTO>> searchCustomers(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit) {
         String trimmedQuery = query.trim();
         if (trimmedQuery.isEmpty()) {
             return ResponseEntity.ok(List.of());
         }
-        return ResponseEntity.ok(customerService.searchCustomers(trimmedQuery));
+        return ResponseEntity.ok(searchResultCache.get("customers", Source.CUSTOMERS, trimmedQuery, String.valueOf(limit),
+                () -> customerService.searchCustomers(trimmedQuery, limit).getContent()));
+    }
+
+    private static boolean isValidMode(String mode) {
+        return MODE_FULL.equalsIgnoreCase(mode) || MODE_SNIPPET.equalsIgnoreCase(mode);
+    }
+
+    private static ResponseEntity<Map<String, String>> invalidMode(String mode) {
+        return ResponseEntity.badRequest().body(Map.of("error", "Unknown mode: " + mode + " (use full or snippet)"));
+    }
+
+    private static String pageKey(Pageable pageable) {
+        return pageable.getPageNumber() + "/" + pageable.getPageSize() + "/" + pageable.getSort();
     }
 }
@@ -0,0 +1,29 @@
+package com.support.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.support.model.Conversation.UrgencyLevel;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one row of a bulk ingest request, streamed back as one NDJSON line
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkMessageResult {
+    private long row;
+    private Status status;
+    private UUID messageId;
+    private UUID conversationId;
+    private UrgencyLevel urgencyLevel;
+    private Integer urgencyScore;
+    private String error;
+
+    public enum Status {
+        CREATED, APPENDED, FAILED
+    }
+}
@@ -3,6 +3,7 @@ package com.support.dto;
 import com.support.model.Conversation;
 import com.support.model.Conversation.ConversationStatus;
 import com.support.model.Conversation.UrgencyLevel;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -13,7 +14,7 @@ import java.util.stream.Collectors;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class ConversationDTO {
     private UUID id;
     private CustomerDTO customer;
@@ -24,12 +25,17 @@ public class ConversationDTO {
     private String urgencyReason;
     private UrgencyLevel urgencyLevel;
     private Integer unreadCount;
+    private LocalDateTime lastReadAt;
     private LocalDateTime lastMessageAt;
     private String lastMessagePreview;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private List<MessageDTO> messages;
 
+    // With only the latest messages loaded: cursor for the older ones (see MessageWindow)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String messagesBeforeCursor;
+
     public static ConversationDTO fromEntity(Conversation conversation) {
         return ConversationDTO.builder()
                 .id(conversation.getId())
@@ -43,6 +49,7 @@ public class ConversationDTO {
                 .urgencyReason(conversation.getUrgencyReason())
                 .urgencyLevel(conversation.getUrgencyLevel())
                 .unreadCount(conversation.getUnreadCount())
+                .lastReadAt(conversation.getLastReadAt())
                 .lastMessageAt(conversation.getLastMessageAt())
                 .lastMessagePreview(conversation.getLastMessagePreview())
                 .createdAt(conversation.getCreatedAt())
@@ -51,10 +58,17 @@ public class ConversationDTO {
     }
 
     public static ConversationDTO fromEntityWithMessages(Conversation conversation) {
+        return fromEntityWithMessages(conversation, conversation.getLastReadAt());
+    }
+
+    /**
+     * @param lastReadAt read watermark to derive the messages' read state from
+     */
+    public static ConversationDTO fromEntityWithMessages(Conversation conversation, LocalDateTime lastReadAt) {
         ConversationDTO dto = fromEntity(conversation);
         if (conversation.getMessages() != null) {
             dto.setMessages(conversation.getMessages().stream()
-                    .map(MessageDTO::fromEntity)
+                    .map(message -> MessageDTO.fromEntity(message, lastReadAt))
                     .collect(Collectors.toList()));
         }
         return dto;
@@ -0,0 +1,33 @@
+package com.support.dto;
+
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Conversation.UrgencyLevel;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Compact conversation for inbox lists ({@code view=summary}): the header
+ * fields plus the customer's and agent's id and name, instead of the full
+ * nested customer and agent. Field order matches the constructor expressions
+ * in ConversationRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConversationSummary {
+    private UUID id;
+    private String subject;
+    private ConversationStatus status;
+    private Integer urgencyScore;
+    private UrgencyLevel urgencyLevel;
+    private Integer unreadCount;
+    private LocalDateTime lastMessageAt;
+    private String lastMessagePreview;
+    private UUID customerId;
+    private String customerName;
+    private UUID assignedAgentId;
+    private String assignedAgentName;
+}
@@ -0,0 +1,51 @@
+package com.support.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) listing. Pass {@code nextCursor} back as
+ * {@code cursor} to get the following page; it is null on the last page. The
+ * total is only filled in when asked for, on the first page, and may drift
+ * while the client scrolls.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private Long total;
+
+    /**
+     * Opaque cursor token for the sort key of the last item
+     */
+    public static String encodeCursor(String... parts) {
+        String joined = String.join("|", parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sort key parts of a cursor made by {@link #encodeCursor}
+     *
+     * @throws IllegalArgumentException if the token is not a cursor of the expected size
+     */
+    public static String[] decodeCursor(String cursor, int parts) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] split = joined.split("\\|", -1);
+            if (split.length == parts) {
+                return split;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
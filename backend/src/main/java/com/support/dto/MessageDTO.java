@@ -23,6 +23,18 @@ public class MessageDTO {
     private LocalDateTime createdAt;
 
     public static MessageDTO fromEntity(Message message) {
+        return fromEntity(message, null);
+    }
+
+    /**
+     * Convert a message, counting it as read if its conversation's read
+     * watermark covers it
+     *
+     * @param lastReadAt the conversation's read watermark, null if never read
+     */
+    public static MessageDTO fromEntity(Message message, LocalDateTime lastReadAt) {
+        boolean read = Boolean.TRUE.equals(message.getIsRead())
+                || (lastReadAt != null && message.getCreatedAt() != null && !message.getCreatedAt().isAfter(lastReadAt));
         return MessageDTO.builder()
                 .id(message.getId())
                 .conversationId(message.getConversation() != null ? 
@@ -31,7 +43,7 @@ public class MessageDTO {
                 .senderType(message.getSenderType())
                 .senderName(message.getSenderName())
                 .content(message.getContent())
-                .isRead(message.getIsRead())
+                .isRead(read)
                 .isCannedResponse(message.getIsCannedResponse())
                 .createdAt(message.getCreatedAt())
                 .build();
@@ -0,0 +1,30 @@
+package com.support.dto;
+
+import com.support.model.Message.SenderType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Search hit with a short excerpt of the message instead of its full content.
+ * Each highlight is a [start, end) char range of a match within the snippet.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSnippetDTO {
+    private UUID id;
+    private UUID conversationId;
+    private UUID senderId;
+    private SenderType senderType;
+    private String senderName;
+    private String snippet;
+    private List<int[]> highlights;
+    private Integer contentLength;
+    private Boolean isRead;
+    private Boolean isCannedResponse;
+    private LocalDateTime createdAt;
+}
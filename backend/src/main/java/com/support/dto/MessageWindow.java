@@ -0,0 +1,25 @@
+package com.support.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A window of a conversation's message history, oldest first. Pass
+ * {@code beforeCursor} back as {@code before} to load older messages (it is
+ * null once the start of the conversation is reached) and {@code afterCursor}
+ * as {@code after} to load newer ones; {@code hasNewer} tells whether more are
+ * already waiting.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageWindow {
+    private List<MessageDTO> items;
+    private String beforeCursor;
+    private String afterCursor;
+    private boolean hasNewer;
+}
@@ -0,0 +1,23 @@
+package com.support.dto.request;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * One message of a bulk ingest request. Without a conversationId the row starts a
+ * new conversation (like POST /api/messages); with one it is appended to it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkMessageRow {
+
+    private String customerName;
+    private String customerEmail;
+    private String customerPhone;
+    private String content;
+    private String subject;
+    private UUID conversationId;
+}
@@ -3,6 +3,7 @@ package com.support.model;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -11,7 +12,31 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+        // Listings by status in urgency order (open queue fallback, filtered listing and its
+        // keyset pages, re-scoring)
+        @Index(name = "idx_conversations_status_urgency", columnList = "status, urgency_score, last_message_at, id"),
+        // Unfiltered listing in urgency order, and its keyset pages
+        @Index(name = "idx_conversations_urgency", columnList = "urgency_score, last_message_at, id"),
+        // An agent's active conversations, unassigned conversations
+        @Index(name = "idx_conversations_agent_status",
+                columnList = "assigned_agent_id, status, urgency_score, last_message_at"),
+        // Agent filter in urgency order, and its keyset pages
+        @Index(name = "idx_conversations_agent_urgency",
+                columnList = "assigned_agent_id, urgency_score, last_message_at, id"),
+        // Urgency level filter in urgency order and its keyset pages, the urgent count
+        @Index(name = "idx_conversations_urgency_level",
+                columnList = "urgency_level, urgency_score, last_message_at, id"),
+        @Index(name = "idx_conversations_customer", columnList = "customer_id")
+})
+// Customer and agent, which every ConversationDTO includes; list queries load them in the same statement
+@NamedEntityGraph(name = Conversation.WITH_PARTICIPANTS, attributeNodes = {
+        @NamedAttributeNode("customer"),
+        @NamedAttributeNode("assignedAgent")
+})
+// Updates write only the changed columns, so they never put back header fields
+// (last message, unread count, read watermark) that ConversationHeaderBuffer wrote meanwhile
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,6 +44,8 @@ import java.util.UUID;
 @Builder
 public class Conversation {
 
+    public static final String WITH_PARTICIPANTS = "Conversation.withParticipants";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -51,11 +78,18 @@ public class Conversation {
     @Builder.Default
     private UrgencyLevel urgencyLevel = UrgencyLevel.LOW;
 
+    // Derived from the read watermark: ConversationHeaderBuffer recounts it when a read moves the watermark
     @Column(name = "unread_count")
     @Builder.Default
     private Integer unreadCount = 0;
 
-    @Column(name = "last_message_at")
+    // Read watermark: customer messages created at or before this have been read (authoritative
+    // for unread state, see MessageRepository.countUnreadMessages)
+    @Column(name = "last_read_at")
+    private LocalDateTime lastReadAt;
+
+    // Required (creation time until the first message) so listings order and seek on the bare column
+    @Column(name = "last_message_at", nullable = false)
     private LocalDateTime lastMessageAt;
 
     @Column(name = "last_message_preview")
@@ -74,6 +108,14 @@ public class Conversation {
     @Builder.Default
     private List<Message> messages = new ArrayList<>();
 
+    @PrePersist
+    void defaultLastMessageAt() {
+        // Created without a message yet: sorts by its creation time
+        if (lastMessageAt == null) {
+            lastMessageAt = LocalDateTime.now();
+        }
+    }
+
     public enum ConversationStatus {
         OPEN, IN_PROGRESS, WAITING, RESOLVED, CLOSED
     }
@@ -10,7 +10,10 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "customers")
+@Table(name = "customers", indexes = {
+        // Lookup by phone when matching incoming messages to customers (email is unique, so already indexed)
+        @Index(name = "idx_customers_phone", columnList = "phone")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,49 @@
+package com.support.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted progress of a resumable background job.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobCheckpoint {
+
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+
+    // Job-specific resume position (e.g. last processed id)
+    @Column(name = "position", columnDefinition = "TEXT")
+    private String position;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private JobStatus status = JobStatus.RUNNING;
+
+    @Column(name = "processed")
+    @Builder.Default
+    private Long processed = 0L;
+
+    @Column(name = "updated")
+    @Builder.Default
+    private Long updated = 0L;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum JobStatus {
+        RUNNING, COMPLETED, FAILED
+    }
+}
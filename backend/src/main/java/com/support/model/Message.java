@@ -8,7 +8,13 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        // Conversation history (full or windows) ordered by (created_at, id); also the
+        // conversation lookup of unread messages past the read watermark
+        @Index(name = "idx_messages_conversation_created", columnList = "conversation_id, created_at, id"),
+        // Recent messages and the newest-first database search pages
+        @Index(name = "idx_messages_created", columnList = "created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -45,6 +51,10 @@ public class Message {
     @Builder.Default
     private Boolean isCannedResponse = false;
 
+    // Key of the CSV export row this message was imported from (null otherwise)
+    @Column(name = "import_key")
+    private Long importKey;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -1,15 +1,20 @@
 package com.support.repository;
 
+import com.support.dto.ConversationSummary;
 import com.support.model.Conversation;
 import com.support.model.Conversation.ConversationStatus;
 import com.support.model.Conversation.UrgencyLevel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,25 +22,43 @@ import java.util.UUID;
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, UUID> {
 
+    String SUMMARY_SELECT = "new com.support.dto.ConversationSummary(c.id, c.subject, c.status, c.urgencyScore, " +
+            "c.urgencyLevel, c.unreadCount, c.lastMessageAt, c.lastMessagePreview, cu.id, cu.name, a.id, a.name) " +
+            "FROM Conversation c JOIN c.customer cu LEFT JOIN c.assignedAgent a";
+
+    // List queries below that feed ConversationDTO load customer and agent with the
+    // conversations (one statement instead of one more per row and association)
+
+    @Override
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
+    List<Conversation> findAll();
+
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
     List<Conversation> findByCustomerId(UUID customerId);
 
+    List<Conversation> findByCustomerIdIn(List<UUID> customerIds);
+
     List<Conversation> findByAssignedAgentId(UUID agentId);
 
     List<Conversation> findByStatus(ConversationStatus status);
 
     List<Conversation> findByUrgencyLevel(UrgencyLevel urgencyLevel);
 
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
     @Query("SELECT c FROM Conversation c WHERE c.status IN :statuses ORDER BY c.urgencyScore DESC, c.lastMessageAt DESC")
     List<Conversation> findOpenConversationsOrderByUrgency(@Param("statuses") List<ConversationStatus> statuses);
 
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
     @Query("SELECT c FROM Conversation c WHERE c.assignedAgent IS NULL AND c.status = 'OPEN' ORDER BY c.urgencyScore DESC")
     List<Conversation> findUnassignedConversations();
 
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
     @Query("SELECT c FROM Conversation c WHERE c.assignedAgent.id = :agentId AND c.status IN ('OPEN', 'IN_PROGRESS', 'WAITING')")
     List<Conversation> findActiveConversationsByAgent(@Param("agentId") UUID agentId);
 
     Page<Conversation> findByStatusIn(List<ConversationStatus> statuses, Pageable pageable);
 
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
     @Query("SELECT c FROM Conversation c WHERE " +
            "(:status IS NULL OR c.status = :status) AND " +
            "(:urgencyLevel IS NULL OR c.urgencyLevel = :urgencyLevel) AND " +
@@ -47,6 +70,107 @@ public interface ConversationRepository extends JpaRepository<Conversation, UUID
             @Param("agentId") UUID agentId,
             Pageable pageable);
 
+    // Summary views (ConversationSummary) of the listings above, selecting only the columns they hold
+
+    @Query("SELECT " + SUMMARY_SELECT + " WHERE c.status IN :statuses ORDER BY c.urgencyScore DESC, c.lastMessageAt DESC")
+    List<ConversationSummary> findOpenSummariesOrderByUrgency(@Param("statuses") List<ConversationStatus> statuses);
+
+    @Query("SELECT " + SUMMARY_SELECT + " WHERE a IS NULL AND c.status = 'OPEN' ORDER BY c.urgencyScore DESC")
+    List<ConversationSummary> findUnassignedSummaries();
+
+    @Query(value = "SELECT " + SUMMARY_SELECT + " WHERE " +
+                   "(:status IS NULL OR c.status = :status) AND " +
+                   "(:urgencyLevel IS NULL OR c.urgencyLevel = :urgencyLevel) AND " +
+                   "(:agentId IS NULL OR a.id = :agentId) " +
+                   "ORDER BY c.urgencyScore DESC, c.lastMessageAt DESC",
+           countQuery = "SELECT COUNT(c) FROM Conversation c WHERE " +
+                   "(:status IS NULL OR c.status = :status) AND " +
+                   "(:urgencyLevel IS NULL OR c.urgencyLevel = :urgencyLevel) AND " +
+                   "(:agentId IS NULL OR c.assignedAgent.id = :agentId)")
+    Page<ConversationSummary> findSummariesWithFilters(
+            @Param("status") ConversationStatus status,
+            @Param("urgencyLevel") UrgencyLevel urgencyLevel,
+            @Param("agentId") UUID agentId,
+            Pageable pageable);
+
+    // Keyset pages of the filtered listing in findWithFilters order (id breaks ties), on the bare
+    // columns so the (urgency_score, last_message_at, id) indexes serve the order and the seek (a
+    // row-value comparison, which the database turns into an index range): first page, then pages
+    // after a cursor
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
+    @Query("SELECT c FROM Conversation c WHERE " +
+           "(:status IS NULL OR c.status = :status) AND " +
+           "(:urgencyLevel IS NULL OR c.urgencyLevel = :urgencyLevel) AND " +
+           "(:agentId IS NULL OR c.assignedAgent.id = :agentId) " +
+           "ORDER BY c.urgencyScore DESC, c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findWithFiltersFirst(
+            @Param("status") ConversationStatus status,
+            @Param("urgencyLevel") UrgencyLevel urgencyLevel,
+            @Param("agentId") UUID agentId,
+            Pageable pageable);
+
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
+    @Query("SELECT c FROM Conversation c WHERE " +
+           "(:status IS NULL OR c.status = :status) AND " +
+           "(:urgencyLevel IS NULL OR c.urgencyLevel = :urgencyLevel) AND " +
+           "(:agentId IS NULL OR c.assignedAgent.id = :agentId) AND " +
+           "(c.urgencyScore, c.lastMessageAt, c.id) < (:urgencyScore, :lastMessageAt, :id) " +
+           "ORDER BY c.urgencyScore DESC, c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findWithFiltersAfter(
+            @Param("status") ConversationStatus status,
+            @Param("urgencyLevel") UrgencyLevel urgencyLevel,
+            @Param("agentId") UUID agentId,
+            @Param("urgencyScore") Integer urgencyScore,
+            @Param("lastMessageAt") LocalDateTime lastMessageAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT COUNT(c) FROM Conversation c WHERE " +
+           "(:status IS NULL OR c.status = :status) AND " +
+           "(:urgencyLevel IS NULL OR c.urgencyLevel = :urgencyLevel) AND " +
+           "(:agentId IS NULL OR c.assignedAgent.id = :agentId)")
+    long countWithFilters(
+            @Param("status") ConversationStatus status,
+            @Param("urgencyLevel") UrgencyLevel urgencyLevel,
+            @Param("agentId") UUID agentId);
+
+    // Keyset page over conversations in the given statuses, ordered by id
+    @Query("SELECT c FROM Conversation c WHERE c.status IN :statuses AND " +
+           "(:afterId IS NULL OR c.id > :afterId) ORDER BY c.id")
+    List<Conversation> findByStatusAfterId(
+            @Param("statuses") List<ConversationStatus> statuses,
+            @Param("afterId") UUID afterId,
+            Pageable pageable);
+
+    // Keyset page like findByStatusAfterId, with customer and agent loaded in the same query
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
+    @Query("SELECT c FROM Conversation c WHERE c.status IN :statuses AND " +
+           "(:afterId IS NULL OR c.id > :afterId) ORDER BY c.id")
+    List<Conversation> findByStatusAfterIdWithParticipants(
+            @Param("statuses") List<ConversationStatus> statuses,
+            @Param("afterId") UUID afterId,
+            Pageable pageable);
+
+    @EntityGraph(Conversation.WITH_PARTICIPANTS)
+    @Query("SELECT c FROM Conversation c WHERE c.id IN :ids")
+    List<Conversation> findAllByIdWithParticipants(@Param("ids") Collection<UUID> ids);
+
+    // Read watermarks as (id, lastReadAt), for deriving message read state; never-read conversations are left out
+    @Query("SELECT c.id, c.lastReadAt FROM Conversation c WHERE c.id IN :ids AND c.lastReadAt IS NOT NULL")
+    List<Object[]> findLastReadAtByIds(@Param("ids") Collection<UUID> ids);
+
+    // Conversations stored before lastMessageAt was required get their creation time
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageAt = c.createdAt WHERE c.lastMessageAt IS NULL")
+    int backfillLastMessageAt();
+
+    // Schemas created before the column was required keep it nullable under ddl-auto update
+    @Modifying
+    @Query(value = "ALTER TABLE conversations ALTER COLUMN last_message_at SET NOT NULL", nativeQuery = true)
+    void requireLastMessageAt();
+
+    long countByStatusIn(List<ConversationStatus> statuses);
+
     @Query("SELECT COUNT(c) FROM Conversation c WHERE c.status IN ('OPEN', 'IN_PROGRESS')")
     long countActiveConversations();
 
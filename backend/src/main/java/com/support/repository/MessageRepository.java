@@ -5,7 +5,6 @@ import com.support.model.Message.SenderType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,20 +20,67 @@ public interface MessageRepository extends JpaRepository<Message, UUID> {
 
     Page<Message> findByConversationId(UUID conversationId, Pageable pageable);
 
+    // Windows of a conversation's history on (createdAt, id), served by idx_messages_conversation_created:
+    // newest first (latest, or older than a message), or oldest first after a message
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findLatestInConversation(@Param("conversationId") UUID conversationId, Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND " +
+           "(m.createdAt, m.id) < (:createdAt, :id) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findInConversationBefore(
+            @Param("conversationId") UUID conversationId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND " +
+           "(m.createdAt, m.id) > (:createdAt, :id) " +
+           "ORDER BY m.createdAt ASC, m.id ASC")
+    List<Message> findInConversationAfter(
+            @Param("conversationId") UUID conversationId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
     List<Message> findBySenderType(SenderType senderType);
 
     @Query("SELECT m FROM Message m WHERE " +
            "LOWER(m.content) LIKE LOWER(CONCAT('%', :query, '%'))")
     Page<Message> searchMessages(@Param("query") String query, Pageable pageable);
 
-    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND m.isRead = false")
-    List<Message> findUnreadMessages(@Param("conversationId") UUID conversationId);
+    // Keyset pages of the content search, newest first: first page, then pages after (createdAt, id)
+    @Query("SELECT m FROM Message m WHERE " +
+           "LOWER(m.content) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> searchMessagesFirst(@Param("query") String query, Pageable pageable);
 
-    @Modifying
-    @Query("UPDATE Message m SET m.isRead = true WHERE m.conversation.id = :conversationId AND m.senderType = 'CUSTOMER'")
-    void markAllAsReadForConversation(@Param("conversationId") UUID conversationId);
+    @Query("SELECT m FROM Message m WHERE " +
+           "LOWER(m.content) LIKE LOWER(CONCAT('%', :query, '%')) AND " +
+           "(m.createdAt, m.id) < (:createdAt, :id) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> searchMessagesBefore(
+            @Param("query") String query,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT COUNT(m) FROM Message m WHERE LOWER(m.content) LIKE LOWER(CONCAT('%', :query, '%'))")
+    long countSearchMessages(@Param("query") String query);
+
+    // Customer message bodies for a set of conversations as (conversationId, content), oldest first
+    @Query("SELECT m.conversation.id, m.content FROM Message m WHERE m.conversation.id IN :conversationIds " +
+           "AND m.senderType = 'CUSTOMER' ORDER BY m.createdAt ASC, m.id ASC")
+    List<Object[]> findCustomerContentByConversationIds(@Param("conversationIds") List<UUID> conversationIds);
+
+    // Unread = not flagged read and newer than the conversation's read watermark (Conversation.lastReadAt)
+    @Query("SELECT m FROM Message m JOIN m.conversation c WHERE c.id = :conversationId AND m.isRead = false " +
+           "AND (c.lastReadAt IS NULL OR m.createdAt > c.lastReadAt) ORDER BY m.createdAt ASC")
+    List<Message> findUnreadMessages(@Param("conversationId") UUID conversationId);
 
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.conversation.id = :conversationId AND m.isRead = false AND m.senderType = 'CUSTOMER'")
+    @Query("SELECT COUNT(m) FROM Message m JOIN m.conversation c WHERE c.id = :conversationId AND m.isRead = false " +
+           "AND m.senderType = 'CUSTOMER' AND (c.lastReadAt IS NULL OR m.createdAt > c.lastReadAt)")
     long countUnreadMessages(@Param("conversationId") UUID conversationId);
 
     @Query("SELECT m FROM Message m WHERE m.createdAt >= :since ORDER BY m.createdAt DESC")
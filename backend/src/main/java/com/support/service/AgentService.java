@@ -21,9 +21,15 @@ import java.util.UUID;
 public class AgentService {
 
     private final AgentRepository agentRepository;
+    private final OpenConversationQueue openConversationQueue;
+    private final DashboardCounters dashboardCounters;
 
-    public AgentService(AgentRepository agentRepository) {
+    public AgentService(AgentRepository agentRepository,
+                        OpenConversationQueue openConversationQueue,
+                        DashboardCounters dashboardCounters) {
         this.agentRepository = agentRepository;
+        this.openConversationQueue = openConversationQueue;
+        this.dashboardCounters = dashboardCounters;
     }
 
     /**
@@ -79,7 +85,9 @@ public class AgentService {
         agent.setStatus(AgentStatus.ONLINE);
         agent.setLastActive(LocalDateTime.now());
 
-        return AgentDTO.fromEntity(agentRepository.save(agent));
+        agent = agentRepository.save(agent);
+        dashboardCounters.agentChangedAfterCommit(null, agent);
+        return AgentDTO.fromEntity(agent);
     }
 
     /**
@@ -90,10 +98,14 @@ public class AgentService {
         Agent agent = agentRepository.findById(agentId)
                 .orElseThrow(() -> new RuntimeException("Agent not found"));
         
+        AgentStatus previousStatus = agent.getStatus();
         agent.setStatus(status);
         agent.setLastActive(LocalDateTime.now());
         
-        return AgentDTO.fromEntity(agentRepository.save(agent));
+        agent = agentRepository.save(agent);
+        openConversationQueue.updateAgentAfterCommit(agent);
+        dashboardCounters.agentChangedAfterCommit(previousStatus, agent);
+        return AgentDTO.fromEntity(agent);
     }
 
     /**
@@ -106,6 +118,7 @@ public class AgentService {
             Agent agent = agentOpt.get();
             agent.setActiveConversations(agent.getActiveConversations() + 1);
             agentRepository.save(agent);
+            openConversationQueue.updateAgentAfterCommit(agent);
         }
     }
 
@@ -120,6 +133,7 @@ public class AgentService {
             int count = agent.getActiveConversations();
             agent.setActiveConversations(Math.max(0, count - 1));
             agentRepository.save(agent);
+            openConversationQueue.updateAgentAfterCommit(agent);
         }
     }
 
@@ -133,13 +147,17 @@ public class AgentService {
             Agent agent = agentOpt.get();
             agent.setTotalResolved(agent.getTotalResolved() + 1);
             agentRepository.save(agent);
+            openConversationQueue.updateAgentAfterCommit(agent);
         }
     }
 
     /**
-     * Count online agents
+     * Count online agents (in-memory counter once reconciled)
      */
     public long countOnlineAgents() {
+        if (dashboardCounters.isReady()) {
+            return dashboardCounters.getOnlineAgents();
+        }
         return agentRepository.countOnlineAgents();
     }
 
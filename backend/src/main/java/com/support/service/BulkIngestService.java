@@ -0,0 +1,530 @@
+package com.support.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import com.support.dto.BulkMessageResult;
+import com.support.dto.BulkMessageResult.Status;
+import com.support.dto.request.BulkMessageRow;
+import com.support.model.*;
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Conversation.UrgencyLevel;
+import com.support.model.Message.SenderType;
+import com.support.repository.ConversationRepository;
+import com.support.repository.CustomerRepository;
+import com.support.repository.MessageRepository;
+import com.support.service.UrgencyDetectionService.UrgencyResult;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bulk message ingest for backfills. The request body (CSV or NDJSON) is parsed
+ * incrementally in chunks; each chunk is scored on the urgency batch pool while the
+ * previous chunk is written in a single transaction, and one result line per row is
+ * streamed back as soon as its chunk commits. At most two chunks are held in memory,
+ * however large the request is.
+ */
+@Service
+public class BulkIngestService {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    private final CustomerRepository customerRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final UrgencyDetectionService urgencyDetectionService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final SearchResultCache searchResultCache;
+    private final OpenConversationQueue openConversationQueue;
+    private final DashboardCounters dashboardCounters;
+    private final ConversationHeaderBuffer conversationHeaderBuffer;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    // Rows per transaction / JDBC batch
+    @Value("${app.bulk.batch-size:1000}")
+    private int batchSize;
+
+    public BulkIngestService(CustomerRepository customerRepository,
+                             ConversationRepository conversationRepository,
+                             MessageRepository messageRepository,
+                             UrgencyDetectionService urgencyDetectionService,
+                             MessageSearchIndex messageSearchIndex,
+                             CustomerSearchIndex customerSearchIndex,
+                             SearchResultCache searchResultCache,
+                             OpenConversationQueue openConversationQueue,
+                             DashboardCounters dashboardCounters,
+                             ConversationHeaderBuffer conversationHeaderBuffer,
+                             ObjectMapper objectMapper,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.urgencyDetectionService = urgencyDetectionService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.customerSearchIndex = customerSearchIndex;
+        this.searchResultCache = searchResultCache;
+        this.openConversationQueue = openConversationQueue;
+        this.dashboardCounters = dashboardCounters;
+        this.conversationHeaderBuffer = conversationHeaderBuffer;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Prepare ingesting a request body. The CSV header (if any) is read up front so
+     * a malformed request fails before the response starts; the returned body then
+     * reads the remaining rows and writes NDJSON results as it goes.
+     *
+     * @throws IllegalArgumentException for an unsupported content type or CSV header
+     */
+    public StreamingResponseBody ingest(InputStream body, String contentType) throws IOException {
+        RowReader reader = openReader(body, contentType);
+        return out -> {
+            try (reader) {
+                run(reader, out);
+            }
+        };
+    }
+
+    private void run(RowReader reader, OutputStream out) throws IOException {
+        List<BulkRow> chunk = readChunk(reader);
+        CompletableFuture<List<UrgencyResult>> scoring = score(chunk);
+        while (!chunk.isEmpty()) {
+            // Parse and score the next chunk while this one is written
+            List<BulkRow> next = readChunk(reader);
+            CompletableFuture<List<UrgencyResult>> nextScoring = score(next);
+
+            for (BulkMessageResult result : writeChunk(chunk, scoring.join())) {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+            out.flush();
+
+            chunk = next;
+            scoring = nextScoring;
+        }
+    }
+
+    private List<BulkRow> readChunk(RowReader reader) throws IOException {
+        List<BulkRow> chunk = new ArrayList<>(batchSize);
+        BulkRow row;
+        while (chunk.size() < batchSize && (row = reader.next()) != null) {
+            chunk.add(row);
+        }
+        return chunk;
+    }
+
+    private CompletableFuture<List<UrgencyResult>> score(List<BulkRow> chunk) {
+        List<String> contents = new ArrayList<>(chunk.size());
+        for (BulkRow row : chunk) {
+            contents.add(row.error == null ? row.message.getContent() : "");
+        }
+        return urgencyDetectionService.analyzeUrgencyBatchAsync(contents);
+    }
+
+    /**
+     * Persist the valid rows of one chunk in a single transaction, mirroring
+     * createCustomerMessage and addMessageToConversation. If the transaction
+     * fails, every row that was to be written in it is reported as failed.
+     */
+    private List<BulkMessageResult> writeChunk(List<BulkRow> chunk, List<UrgencyResult> urgencies) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Lookups lookups = loadLookups(chunk);
+                List<BulkMessageResult> results = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    BulkRow row = chunk.get(i);
+                    if (row.error != null) {
+                        results.add(failed(row.number, row.error));
+                    } else if (row.message.getConversationId() != null) {
+                        results.add(append(row, urgencies.get(i), lookups));
+                    } else {
+                        results.add(create(row, urgencies.get(i), lookups));
+                    }
+                }
+                // After the rows' index adds, so no search between them caches the old results
+                searchResultCache.invalidateAllAfterCommit();
+                // Entities are detached below, so the queue reloads the conversations after commit
+                Set<UUID> conversationIds = new LinkedHashSet<>();
+                for (BulkMessageResult result : results) {
+                    if (result.getConversationId() != null) {
+                        conversationIds.add(result.getConversationId());
+                    }
+                }
+                openConversationQueue.reloadAfterCommit(conversationIds);
+                // Keep the persistence context small; it may span the whole request
+                entityManager.flush();
+                entityManager.clear();
+                return results;
+            });
+        } catch (RuntimeException e) {
+            entityManager.clear();
+            List<BulkMessageResult> results = new ArrayList<>(chunk.size());
+            for (BulkRow row : chunk) {
+                results.add(failed(row.number, row.error != null ? row.error : "Batch failed: " + e.getMessage()));
+            }
+            return results;
+        }
+    }
+
+    private BulkMessageResult create(BulkRow row, UrgencyResult urgency, Lookups lookups) {
+        BulkMessageRow request = row.message;
+        Customer customer = findOrCreateCustomer(request, lookups);
+
+        String subject = request.getSubject();
+        if (subject == null || subject.isEmpty()) {
+            subject = truncate(request.getContent(), 50);
+        }
+
+        Conversation conversation = new Conversation();
+        conversation.setCustomer(customer);
+        conversation.setSubject(subject);
+        conversation.setStatus(ConversationStatus.OPEN);
+        conversation.setUrgencyScore(urgency.getScore());
+        conversation.setUrgencyLevel(urgency.getLevel());
+        conversation.setUrgencyReason(urgency.getReason());
+        conversation.setLastMessageAt(LocalDateTime.now());
+        conversation.setLastMessagePreview(truncate(request.getContent(), 100));
+        conversation.setUnreadCount(1);
+        conversation = conversationRepository.save(conversation);
+        dashboardCounters.conversationChangedAfterCommit(null, null, conversation);
+
+        customer.setTotalConversations(
+                (customer.getTotalConversations() != null ? customer.getTotalConversations() : 0) + 1);
+
+        Message message = saveMessage(conversation, customer, request.getContent());
+        return success(row.number, Status.CREATED, message, conversation, urgency);
+    }
+
+    private BulkMessageResult append(BulkRow row, UrgencyResult urgency, Lookups lookups) {
+        Conversation conversation = lookups.conversations.get(row.message.getConversationId());
+        if (conversation == null) {
+            return failed(row.number, "Conversation not found");
+        }
+        ConversationStatus previousStatus = conversation.getStatus();
+        UrgencyLevel previousLevel = conversation.getUrgencyLevel();
+
+        // Update urgency if new message is more urgent
+        if (urgency.getScore() > conversation.getUrgencyScore()) {
+            conversation.setUrgencyScore(urgency.getScore());
+            conversation.setUrgencyLevel(urgency.getLevel());
+            conversation.setUrgencyReason(urgency.getReason());
+        }
+
+        // Last message and unread count are written behind, like addMessageToConversation
+        conversationHeaderBuffer.customerMessageAfterCommit(
+                conversation.getId(), LocalDateTime.now(), truncate(row.message.getContent(), 100));
+
+        // Reopen if was closed
+        if (conversation.getStatus() == ConversationStatus.RESOLVED ||
+            conversation.getStatus() == ConversationStatus.CLOSED) {
+            conversation.setStatus(ConversationStatus.OPEN);
+        }
+
+        dashboardCounters.conversationChangedAfterCommit(previousStatus, previousLevel, conversation);
+
+        Message message = saveMessage(conversation, conversation.getCustomer(), row.message.getContent());
+        return success(row.number, Status.APPENDED, message, conversation, urgency);
+    }
+
+    private Message saveMessage(Conversation conversation, Customer customer, String content) {
+        Message message = new Message();
+        message.setConversation(conversation);
+        message.setSenderId(customer.getId());
+        message.setSenderType(SenderType.CUSTOMER);
+        message.setSenderName(customer.getName());
+        message.setContent(content);
+        message.setIsRead(false);
+        message = messageRepository.save(message);
+        messageSearchIndex.addAfterCommit(message);
+        return message;
+    }
+
+    /**
+     * Same matching as CustomerService.findOrCreateCustomer (email, then phone), against
+     * customers looked up for the whole chunk and those created earlier in it
+     */
+    private Customer findOrCreateCustomer(BulkMessageRow request, Lookups lookups) {
+        String email = request.getCustomerEmail();
+        String phone = request.getCustomerPhone();
+        if (email != null && !email.isEmpty() && lookups.customersByEmail.containsKey(email)) {
+            return lookups.customersByEmail.get(email);
+        }
+        if (phone != null && !phone.isEmpty() && lookups.customersByPhone.containsKey(phone)) {
+            return lookups.customersByPhone.get(phone);
+        }
+
+        Customer customer = new Customer();
+        customer.setName(request.getCustomerName() != null ? request.getCustomerName() : "Unknown Customer");
+        customer.setEmail(email);
+        customer.setPhone(phone);
+        customer.setAccountStatus("ACTIVE");
+        customer.setLoanStatus("N/A");
+        customer.setTotalConversations(0);
+        customer = customerRepository.save(customer);
+        customerSearchIndex.addAfterCommit(customer);
+
+        if (email != null && !email.isEmpty()) {
+            lookups.customersByEmail.put(email, customer);
+        }
+        if (phone != null && !phone.isEmpty()) {
+            lookups.customersByPhone.putIfAbsent(phone, customer);
+        }
+        return customer;
+    }
+
+    /**
+     * Load every customer and conversation the chunk refers to with one query each
+     */
+    private Lookups loadLookups(List<BulkRow> chunk) {
+        Set<String> emails = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        Set<UUID> conversationIds = new HashSet<>();
+        for (BulkRow row : chunk) {
+            if (row.error != null) continue;
+            BulkMessageRow message = row.message;
+            if (message.getConversationId() != null) {
+                conversationIds.add(message.getConversationId());
+            } else {
+                if (message.getCustomerEmail() != null && !message.getCustomerEmail().isEmpty()) {
+                    emails.add(message.getCustomerEmail());
+                }
+                if (message.getCustomerPhone() != null && !message.getCustomerPhone().isEmpty()) {
+                    phones.add(message.getCustomerPhone());
+                }
+            }
+        }
+
+        Lookups lookups = new Lookups();
+        if (!emails.isEmpty()) {
+            for (Customer customer : customerRepository.findByEmailIn(new ArrayList<>(emails))) {
+                lookups.customersByEmail.put(customer.getEmail(), customer);
+            }
+        }
+        if (!phones.isEmpty()) {
+            for (Customer customer : customerRepository.findByPhoneIn(new ArrayList<>(phones))) {
+                lookups.customersByPhone.putIfAbsent(customer.getPhone(), customer);
+            }
+        }
+        if (!conversationIds.isEmpty()) {
+            for (Conversation conversation : conversationRepository.findAllById(conversationIds)) {
+                lookups.conversations.put(conversation.getId(), conversation);
+            }
+        }
+        return lookups;
+    }
+
+    private BulkMessageResult success(long number, Status status, Message message,
+                                      Conversation conversation, UrgencyResult urgency) {
+        return BulkMessageResult.builder()
+                .row(number)
+                .status(status)
+                .messageId(message.getId())
+                .conversationId(conversation.getId())
+                .urgencyLevel(urgency.getLevel())
+                .urgencyScore(urgency.getScore())
+                .build();
+    }
+
+    private BulkMessageResult failed(long number, String error) {
+        return BulkMessageResult.builder()
+                .row(number)
+                .status(Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Validation matching CreateMessageRequest; appended rows need no customer name
+     */
+    private static String validate(BulkMessageRow message) {
+        if (message.getContent() == null || message.getContent().trim().isEmpty()) {
+            return "Message content is required";
+        }
+        if (message.getConversationId() == null
+                && (message.getCustomerName() == null || message.getCustomerName().trim().isEmpty())) {
+            return "Customer name is required";
+        }
+        return null;
+    }
+
+    private static String truncate(String text, int maxLength) {
+        if (text == null) return "";
+        if (text.length() <= maxLength) return text;
+        return text.substring(0, maxLength - 3) + "...";
+    }
+
+    private RowReader openReader(InputStream body, String contentType) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (type.startsWith(NDJSON)) {
+            return new NdjsonRowReader(reader, objectMapper);
+        }
+        if (type.startsWith(CSV)) {
+            return new CsvRowReader(reader);
+        }
+        throw new IllegalArgumentException("Unsupported content type for bulk ingest: " + contentType
+                + " (use " + NDJSON + " or " + CSV + ")");
+    }
+
+    /**
+     * One parsed row with its 1-based number, or the reason it could not be parsed
+     */
+    private static class BulkRow {
+        private final long number;
+        private final BulkMessageRow message;
+        private final String error;
+
+        BulkRow(long number, BulkMessageRow message, String error) {
+            this.number = number;
+            this.message = message;
+            this.error = error;
+        }
+
+        static BulkRow of(long number, BulkMessageRow message) {
+            return new BulkRow(number, message, validate(message));
+        }
+    }
+
+    /**
+     * Entities referenced by one chunk, keyed for lookup while writing it
+     */
+    private static class Lookups {
+        private final Map<String, Customer> customersByEmail = new HashMap<>();
+        private final Map<String, Customer> customersByPhone = new HashMap<>();
+        private final Map<UUID, Conversation> conversations = new HashMap<>();
+    }
+
+    private interface RowReader extends AutoCloseable {
+        BulkRow next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * One JSON object per line; a malformed line fails only that row
+     */
+    private static class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long number;
+
+        NdjsonRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public BulkRow next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                number++;
+                try {
+                    return BulkRow.of(number, objectMapper.readValue(line, BulkMessageRow.class));
+                } catch (JsonProcessingException e) {
+                    return new BulkRow(number, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * CSV with a header row naming the BulkMessageRow fields (case and separators
+     * ignored, so "customer_name" and "Customer Name" also work)
+     */
+    private static class CsvRowReader implements RowReader {
+        private final CSVReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long number;
+
+        CsvRowReader(BufferedReader input) throws IOException {
+            this.reader = new CSVReader(input);
+            String[] header = readNext();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV body is empty");
+            }
+            for (int i = 0; i < header.length; i++) {
+                columns.put(normalize(header[i]), i);
+            }
+            if (!columns.containsKey("content")) {
+                throw new IllegalArgumentException("CSV header must include a content column");
+            }
+        }
+
+        @Override
+        public BulkRow next() throws IOException {
+            String[] fields;
+            while ((fields = readNext()) != null) {
+                if (fields.length == 1 && fields[0].trim().isEmpty()) continue;
+                number++;
+                BulkMessageRow message = new BulkMessageRow();
+                message.setCustomerName(field(fields, "customername"));
+                message.setCustomerEmail(field(fields, "customeremail"));
+                message.setCustomerPhone(field(fields, "customerphone"));
+                message.setContent(field(fields, "content"));
+                message.setSubject(field(fields, "subject"));
+                String conversationId = field(fields, "conversationid");
+                if (conversationId != null && !conversationId.isEmpty()) {
+                    try {
+                        message.setConversationId(UUID.fromString(conversationId.trim()));
+                    } catch (IllegalArgumentException e) {
+                        return new BulkRow(number, null, "Invalid conversationId: " + conversationId);
+                    }
+                }
+                return BulkRow.of(number, message);
+            }
+            return null;
+        }
+
+        private String field(String[] fields, String column) {
+            Integer index = columns.get(column);
+            return index != null && index < fields.length ? fields[index] : null;
+        }
+
+        private String[] readNext() throws IOException {
+            try {
+                return reader.readNext();
+            } catch (CsvValidationException e) {
+                throw new IOException("Invalid CSV: " + e.getMessage(), e);
+            }
+        }
+
+        private static String normalize(String name) {
+            return name.replaceAll("[^A-Za-z]", "").toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
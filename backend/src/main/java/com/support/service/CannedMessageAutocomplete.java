@@ -0,0 +1,182 @@
+package com.support.service;
+
+import com.support.dto.CannedMessageDTO;
+import com.support.model.CannedMessage;
+import com.support.repository.CannedMessageRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prefix autocomplete over active canned message shortcuts and titles.
+ * <p>
+ * Shortcuts (without the leading "/"), titles and every word of a title are
+ * keys of a character trie. Each trie node stores its best completions, most
+ * used first, so a lookup is a walk down the typed prefix with no ranking work.
+ * The trie is immutable and swapped in whole when the catalog or a usage count
+ * changes, so readers never see a half-built trie and take no locks.
+ */
+@Service
+public class CannedMessageAutocomplete {
+
+    // Completions stored per node, and so the largest limit served
+    static final int MAX_SUGGESTIONS = 10;
+
+    private static final Comparator<CannedMessageDTO> BY_USAGE = Comparator
+            .comparing((CannedMessageDTO m) -> m.getUsageCount() == null ? 0 : m.getUsageCount())
+            .reversed()
+            .thenComparing(CannedMessageDTO::getTitle, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final CannedMessageRepository cannedMessageRepository;
+
+    // Catalog the current trie was built from
+    private List<CannedMessageDTO> catalog = List.of();
+    private final AtomicReference<Node> root = new AtomicReference<>(build(List.of()));
+
+    public CannedMessageAutocomplete(CannedMessageRepository cannedMessageRepository) {
+        this.cannedMessageRepository = cannedMessageRepository;
+    }
+
+    /**
+     * Rebuild from the active canned messages in the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        List<CannedMessageDTO> messages = new ArrayList<>();
+        for (CannedMessage message : cannedMessageRepository.findByIsActiveTrue()) {
+            messages.add(CannedMessageDTO.fromEntity(message));
+        }
+        replace(messages);
+    }
+
+    /**
+     * Re-rank after a canned message's usage count changed, once the transaction commits
+     */
+    public void recordUsage(CannedMessage message) {
+        CannedMessageDTO updated = CannedMessageDTO.fromEntity(message);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(updated);
+                }
+            });
+        } else {
+            update(updated);
+        }
+    }
+
+    private synchronized void update(CannedMessageDTO updated) {
+        List<CannedMessageDTO> messages = new ArrayList<>(catalog.size());
+        for (CannedMessageDTO message : catalog) {
+            messages.add(message.getId().equals(updated.getId()) ? updated : message);
+        }
+        replace(messages);
+    }
+
+    private void replace(List<CannedMessageDTO> messages) {
+        Node built = build(messages);
+        catalog = messages;
+        root.set(built);
+    }
+
+    /**
+     * Most used canned messages whose shortcut, title or a title word starts with
+     * the prefix (a leading "/" is ignored)
+     */
+    public List<CannedMessageDTO> complete(String prefix, int limit) {
+        Node node = root.get();
+        String key = normalize(prefix);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        int size = Math.min(Math.max(limit, 1), node.top.length);
+        return Arrays.asList(node.top).subList(0, size);
+    }
+
+    private static Node build(List<CannedMessageDTO> messages) {
+        Builder root = new Builder();
+        for (CannedMessageDTO message : messages) {
+            Set<String> keys = new HashSet<>();
+            if (message.getShortcut() != null) {
+                keys.add(normalize(message.getShortcut()));
+            }
+            if (message.getTitle() != null) {
+                String title = normalize(message.getTitle());
+                keys.add(title);
+                for (int i = title.indexOf(' '); i >= 0; i = title.indexOf(' ', i + 1)) {
+                    keys.add(title.substring(i + 1));
+                }
+            }
+            for (String key : keys) {
+                Builder node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+                }
+                node.messages.add(message);
+            }
+        }
+        return root.freeze();
+    }
+
+    private static String normalize(String text) {
+        String key = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        return key.startsWith("/") ? key.substring(1) : key;
+    }
+
+    /**
+     * Mutable trie node used while building
+     */
+    private static class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<CannedMessageDTO> messages = new ArrayList<>();
+
+        Node freeze() {
+            char[] labels = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            // Best completions of this node = best of its own keys and its children's
+            Set<CannedMessageDTO> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            candidates.addAll(messages);
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                nodes[i] = entry.getValue().freeze();
+                candidates.addAll(Arrays.asList(nodes[i].top));
+                i++;
+            }
+            List<CannedMessageDTO> ranked = new ArrayList<>(candidates);
+            ranked.sort(BY_USAGE);
+            CannedMessageDTO[] top = ranked.subList(0, Math.min(MAX_SUGGESTIONS, ranked.size()))
+                    .toArray(new CannedMessageDTO[0]);
+            return new Node(labels, nodes, top);
+        }
+    }
+
+    /**
+     * Immutable trie node: children by sorted label and the node's best completions
+     */
+    private static class Node {
+        private final char[] labels;
+        private final Node[] children;
+        private final CannedMessageDTO[] top;
+
+        Node(char[] labels, Node[] children, CannedMessageDTO[] top) {
+            this.labels = labels;
+            this.children = children;
+            this.top = top;
+        }
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+}
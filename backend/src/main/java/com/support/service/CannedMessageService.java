@@ -17,9 +17,12 @@ import java.util.UUID;
 public class CannedMessageService {
 
     private final CannedMessageRepository cannedMessageRepository;
+    private final CannedMessageAutocomplete cannedMessageAutocomplete;
 
-    public CannedMessageService(CannedMessageRepository cannedMessageRepository) {
+    public CannedMessageService(CannedMessageRepository cannedMessageRepository,
+                                CannedMessageAutocomplete cannedMessageAutocomplete) {
         this.cannedMessageRepository = cannedMessageRepository;
+        this.cannedMessageAutocomplete = cannedMessageAutocomplete;
     }
 
     /**
@@ -75,4 +78,11 @@ public class CannedMessageService {
         }
         return result;
     }
+
+    /**
+     * Autocomplete a typed shortcut or title prefix, most used first
+     */
+    public List<CannedMessageDTO> autocomplete(String prefix, int limit) {
+        return cannedMessageAutocomplete.complete(prefix, limit);
+    }
 }
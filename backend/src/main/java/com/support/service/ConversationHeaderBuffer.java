@@ -0,0 +1,398 @@
+package com.support.service;
+
+import com.support.dto.ConversationDTO;
+import com.support.dto.ConversationSummary;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind buffer for the conversation header fields derived from its
+ * messages: last message time and preview, unread count and read watermark.
+ * <p>
+ * A burst of messages in one conversation used to rewrite its row once per
+ * message. Every writer of these columns now hands its change over once its
+ * transaction commits (the message rows themselves are inserted as before);
+ * changes to the same conversation are merged in memory and written as one
+ * JDBC batch statement per conversation every flush interval. Reads merge the
+ * pending changes over what they loaded, so they see them straight away (a
+ * read that straddles a flush can miss that flush's changes for that response).
+ * <p>
+ * The read watermark is authoritative for which messages are unread; the
+ * unread count is derived from it. A flush that carries a read recounts the
+ * stored count from the messages past the new watermark, the same rule as
+ * MessageRepository.countUnreadMessages; other flushes add the pending new
+ * customer messages to it, so a burst of messages costs no scan of the thread.
+ * Pending changes adjust the count by deltas until then, so a read can be off
+ * by messages that committed but were not recorded yet, for at most one
+ * interval.
+ * Status, assignment and urgency are still written by the write paths
+ * themselves; Conversation uses dynamic updates, so those writes do not touch
+ * the header columns. New conversations are inserted with their first header.
+ * <p>
+ * Copies of headers that are kept (the open conversation queue) must not be
+ * loaded across a flush, or the changes that flush took would be in neither the
+ * copy nor the pending ones; {@link #withoutFlush} runs such a load in between
+ * flushes. The keeper of the copies, a {@link Follower}, applies each change to
+ * them as it is recorded.
+ * <p>
+ * Pending changes are flushed on shutdown. A crash loses at most one interval
+ * of header changes; the messages themselves are already committed.
+ */
+@Service
+public class ConversationHeaderBuffer {
+
+    // Message and read times only move forward. Without a pending read the unread count grows by
+    // the pending messages; with one it is recounted against the new watermark (after both the
+    // stored and the pending one), as MessageRepository.countUnreadMessages
+    private static final String FLUSH_SQL =
+            "UPDATE conversations SET " +
+            "last_message_preview = CASE WHEN ? > last_message_at THEN ? ELSE last_message_preview END, " +
+            "last_message_at = CASE WHEN ? > last_message_at THEN ? ELSE last_message_at END, " +
+            "last_read_at = CASE WHEN last_read_at IS NULL OR ? > last_read_at THEN ? ELSE last_read_at END, " +
+            "unread_count = CASE WHEN ? IS NULL THEN COALESCE(unread_count, 0) + ? " +
+            "ELSE (SELECT COUNT(*) FROM messages m WHERE m.conversation_id = conversations.id " +
+            "AND m.is_read = FALSE AND m.sender_type = 'CUSTOMER' " +
+            "AND (conversations.last_read_at IS NULL OR m.created_at > conversations.last_read_at) " +
+            "AND m.created_at > ?) END, " +
+            "updated_at = ? " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<UUID, Header> pending = new ConcurrentHashMap<>();
+
+    // Held for writing while a flush takes and writes changes, for reading by withoutFlush
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    private volatile Follower follower;
+
+    // False writes each change right after its transaction commits instead of every flush interval
+    @Value("${app.conversation-headers.write-behind:true}")
+    private boolean writeBehind;
+
+    // Conversations written per JDBC batch
+    @Value("${app.conversation-headers.batch-size:500}")
+    private int batchSize;
+
+    public ConversationHeaderBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Flushes may run from afterCommit callbacks, where the finished transaction is still bound
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Keeps its own copies of conversation headers current
+     */
+    public interface Follower {
+
+        /**
+         * Run {@code record}, then apply {@code change} to the copy of the conversation if
+         * there is one, as one step with respect to the follower's other updates
+         */
+        void recorded(UUID conversationId, Runnable record, Consumer<ConversationDTO> change);
+
+        /**
+         * The given conversations' pending changes were written; unread counts may have been recounted
+         */
+        void flushed(List<UUID> conversationIds);
+    }
+
+    public void setFollower(Follower follower) {
+        this.follower = follower;
+    }
+
+    /**
+     * Record new customer messages once the current transaction commits
+     *
+     * @param at      time of the latest of them
+     * @param preview preview of the latest of them
+     */
+    public void customerMessagesAfterCommit(UUID conversationId, LocalDateTime at, String preview, int count) {
+        recordAfterCommit(conversationId, new Header(at, preview, false, count, null));
+    }
+
+    /**
+     * Record a new customer message once the current transaction commits
+     */
+    public void customerMessageAfterCommit(UUID conversationId, LocalDateTime at, String preview) {
+        customerMessagesAfterCommit(conversationId, at, preview, 1);
+    }
+
+    /**
+     * Record an agent reply once the current transaction commits; the customer's
+     * messages so far count as read
+     */
+    public void agentReplyAfterCommit(UUID conversationId, LocalDateTime at, String preview) {
+        recordAfterCommit(conversationId, new Header(at, preview, true, 0, at));
+    }
+
+    /**
+     * Record the conversation as read up to {@code at} once the current transaction commits
+     */
+    public void markReadAfterCommit(UUID conversationId, LocalDateTime at) {
+        recordAfterCommit(conversationId, new Header(null, null, true, 0, at));
+    }
+
+    /**
+     * Apply the conversation's pending header changes to a loaded copy
+     *
+     * @return the same dto
+     */
+    public ConversationDTO merge(ConversationDTO dto) {
+        Header header = pending.get(dto.getId());
+        if (header != null) {
+            header.applyTo(dto);
+        }
+        return dto;
+    }
+
+    /**
+     * Apply the conversation's pending header changes to a loaded summary
+     *
+     * @return the same summary
+     */
+    public ConversationSummary merge(ConversationSummary summary) {
+        Header header = pending.get(summary.getId());
+        if (header != null) {
+            if (header.isNewerMessage(summary.getLastMessageAt())) {
+                summary.setLastMessageAt(header.lastMessageAt);
+                summary.setLastMessagePreview(header.lastMessagePreview);
+            }
+            summary.setUnreadCount(header.unreadCount(summary.getUnreadCount()));
+        }
+        return summary;
+    }
+
+    /**
+     * The conversation's read watermark including pending changes
+     *
+     * @param loaded the watermark as loaded from the database
+     */
+    public LocalDateTime lastReadAt(UUID conversationId, LocalDateTime loaded) {
+        Header header = pending.get(conversationId);
+        return header != null ? header.lastReadAt(loaded) : loaded;
+    }
+
+    /**
+     * Run a database load and the merge of pending changes over it with no flush in
+     * between, so each change is either in what was loaded or still pending
+     */
+    public void withoutFlush(Runnable loadAndMerge) {
+        flushLock.readLock().lock();
+        try {
+            loadAndMerge.run();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    private void recordAfterCommit(UUID conversationId, Header change) {
+        Runnable record = () -> {
+            Runnable merge = () -> pending.merge(conversationId, change, Header::then);
+            Follower current = follower;
+            if (current != null) {
+                current.recorded(conversationId, merge, change::applyTo);
+            } else {
+                merge.run();
+            }
+            if (!writeBehind) {
+                flush();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    /**
+     * Write all pending header changes, one batch statement per conversation.
+     * Changes recorded while a batch is written wait for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.conversation-headers.flush-interval-ms:200}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<UUID> batchIds = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            List<UUID> taken = new ArrayList<>(batchIds.size());
+            List<Header> headers = new ArrayList<>(batchIds.size());
+            flushLock.writeLock().lock();
+            try {
+                for (UUID id : batchIds) {
+                    // Removed one by one, so a change recorded meanwhile starts a new entry
+                    Header header = pending.remove(id);
+                    if (header != null) {
+                        taken.add(id);
+                        headers.add(header);
+                    }
+                }
+                write(taken, headers);
+            } catch (RuntimeException e) {
+                System.err.println("Conversation header flush failed, retrying next interval: " + e.getMessage());
+                for (int i = 0; i < taken.size(); i++) {
+                    // Put back in front of anything recorded since
+                    pending.merge(taken.get(i), headers.get(i), (newer, older) -> older.then(newer));
+                }
+                return;
+            } finally {
+                flushLock.writeLock().unlock();
+            }
+            Follower current = follower;
+            if (current != null && !taken.isEmpty()) {
+                current.flushed(taken);
+            }
+        }
+    }
+
+    private void write(List<UUID> ids, List<Header> headers) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(FLUSH_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Header header = headers.get(i);
+                        setTimestamp(ps, 1, header.lastMessageAt);
+                        if (header.lastMessagePreview != null) {
+                            ps.setString(2, header.lastMessagePreview);
+                        } else {
+                            ps.setNull(2, Types.VARCHAR);
+                        }
+                        setTimestamp(ps, 3, header.lastMessageAt);
+                        setTimestamp(ps, 4, header.lastMessageAt);
+                        setTimestamp(ps, 5, header.lastReadAt);
+                        setTimestamp(ps, 6, header.lastReadAt);
+                        setTimestamp(ps, 7, header.lastReadAt);
+                        // Only added without a pending read, so never after a reset
+                        ps.setInt(8, header.unreadDelta);
+                        setTimestamp(ps, 9, header.lastReadAt);
+                        ps.setTimestamp(10, now);
+                        ps.setObject(11, ids.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return ids.size();
+                    }
+                }));
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value != null) {
+            ps.setTimestamp(index, Timestamp.valueOf(value));
+        } else {
+            ps.setNull(index, Types.TIMESTAMP);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            System.err.println("Conversation headers not written on shutdown: " + pending.size());
+        }
+    }
+
+    /**
+     * Pending changes to one conversation's header. Immutable, so readers never
+     * see a half-merged one.
+     */
+    private static final class Header {
+        final LocalDateTime lastMessageAt;
+        final String lastMessagePreview;
+        // Until the flush recounts it, the unread count starts again from unreadDelta
+        // instead of adding to the loaded one
+        final boolean unreadReset;
+        final int unreadDelta;
+        final LocalDateTime lastReadAt;
+
+        Header(LocalDateTime lastMessageAt, String lastMessagePreview, boolean unreadReset, int unreadDelta,
+               LocalDateTime lastReadAt) {
+            this.lastMessageAt = lastMessageAt;
+            this.lastMessagePreview = lastMessagePreview;
+            this.unreadReset = unreadReset;
+            this.unreadDelta = unreadDelta;
+            this.lastReadAt = lastReadAt;
+        }
+
+        /**
+         * This change followed by a later one
+         */
+        Header then(Header later) {
+            boolean newerMessage = later.isNewerMessage(lastMessageAt);
+            return new Header(
+                    newerMessage ? later.lastMessageAt : lastMessageAt,
+                    newerMessage ? later.lastMessagePreview : lastMessagePreview,
+                    unreadReset || later.unreadReset,
+                    later.unreadReset ? later.unreadDelta : unreadDelta + later.unreadDelta,
+                    later(lastReadAt, later.lastReadAt));
+        }
+
+        /**
+         * Whether this change's last message is at least as recent as {@code current}
+         */
+        boolean isNewerMessage(LocalDateTime current) {
+            return lastMessageAt != null && (current == null || !lastMessageAt.isBefore(current));
+        }
+
+        void applyTo(ConversationDTO dto) {
+            if (isNewerMessage(dto.getLastMessageAt())) {
+                dto.setLastMessageAt(lastMessageAt);
+                dto.setLastMessagePreview(lastMessagePreview);
+            }
+            dto.setUnreadCount(unreadCount(dto.getUnreadCount()));
+            dto.setLastReadAt(lastReadAt(dto.getLastReadAt()));
+        }
+
+        int unreadCount(Integer loaded) {
+            return unreadReset ? unreadDelta : (loaded != null ? loaded : 0) + unreadDelta;
+        }
+
+        LocalDateTime lastReadAt(LocalDateTime loaded) {
+            return later(loaded, lastReadAt);
+        }
+
+        private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+            if (a == null) {
+                return b;
+            }
+            return b == null || a.isAfter(b) ? a : b;
+        }
+    }
+}
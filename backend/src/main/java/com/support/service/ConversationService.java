@@ -1,17 +1,29 @@
 package com.support.service;
 
 import com.support.dto.ConversationDTO;
+import com.support.dto.ConversationSummary;
+import com.support.dto.CursorPage;
+import com.support.dto.MessageWindow;
 import com.support.model.Agent;
 import com.support.model.Conversation;
 import com.support.model.Conversation.ConversationStatus;
 import com.support.model.Conversation.UrgencyLevel;
 import com.support.repository.ConversationRepository;
 import com.support.repository.MessageRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -24,16 +36,80 @@ import java.util.UUID;
 @Service
 public class ConversationService {
 
+    // Largest page of a cursor listing
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final AgentService agentService;
+    private final OpenConversationQueue openConversationQueue;
+    private final MessageService messageService;
+    private final DashboardCounters dashboardCounters;
+    private final ConversationHeaderBuffer conversationHeaderBuffer;
+    private final JdbcTemplate jdbcTemplate;
 
     public ConversationService(ConversationRepository conversationRepository,
                               MessageRepository messageRepository,
-                              AgentService agentService) {
+                              AgentService agentService,
+                              OpenConversationQueue openConversationQueue,
+                              MessageService messageService,
+                              DashboardCounters dashboardCounters,
+                              ConversationHeaderBuffer conversationHeaderBuffer,
+                              JdbcTemplate jdbcTemplate) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.agentService = agentService;
+        this.openConversationQueue = openConversationQueue;
+        this.messageService = messageService;
+        this.dashboardCounters = dashboardCounters;
+        this.conversationHeaderBuffer = conversationHeaderBuffer;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Give conversations stored before lastMessageAt became required their creation
+     * time, and require it in existing schemas, so the keyset listing can order and
+     * seek on the bare column. Runs once: schemas where the column is already
+     * required are left alone, as the ALTER locks the table and scans it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillLastMessageAt() {
+        if (!isLastMessageAtNullable()) {
+            return;
+        }
+        int updated = conversationRepository.backfillLastMessageAt();
+        if (updated > 0) {
+            System.out.println("Set lastMessageAt of " + updated + " conversations to their creation time");
+        }
+        conversationRepository.requireLastMessageAt();
+    }
+
+    private boolean isLastMessageAtNullable() {
+        Boolean nullable = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean upperCase = metaData.storesUpperCaseIdentifiers();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                    upperCase ? "CONVERSATIONS" : "conversations",
+                    upperCase ? "LAST_MESSAGE_AT" : "last_message_at")) {
+                return columns.next() && columns.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
+            }
+        });
+        return Boolean.TRUE.equals(nullable);
+    }
+
+    /**
+     * Convert a loaded conversation, with its header changes not yet written applied
+     */
+    private ConversationDTO toDto(Conversation conversation) {
+        return conversationHeaderBuffer.merge(ConversationDTO.fromEntity(conversation));
+    }
+
+    private List<ConversationSummary> merge(List<ConversationSummary> summaries) {
+        for (ConversationSummary summary : summaries) {
+            conversationHeaderBuffer.merge(summary);
+        }
+        return summaries;
     }
 
     /**
@@ -43,7 +119,7 @@ public class ConversationService {
         List<Conversation> conversations = conversationRepository.findAll();
         List<ConversationDTO> result = new ArrayList<>();
         for (Conversation conv : conversations) {
-            result.add(ConversationDTO.fromEntity(conv));
+            result.add(toDto(conv));
         }
         return result;
     }
@@ -57,7 +133,69 @@ public class ConversationService {
             UUID agentId,
             Pageable pageable) {
         return conversationRepository.findWithFilters(status, urgencyLevel, agentId, pageable)
-                .map(ConversationDTO::fromEntity);
+                .map(this::toDto);
+    }
+
+    /**
+     * Like {@link #getConversationsWithFilters}, as summaries
+     */
+    public Page<ConversationSummary> getConversationSummariesWithFilters(
+            ConversationStatus status,
+            UrgencyLevel urgencyLevel,
+            UUID agentId,
+            Pageable pageable) {
+        return conversationRepository.findSummariesWithFilters(status, urgencyLevel, agentId, pageable)
+                .map(summary -> conversationHeaderBuffer.merge(summary));
+    }
+
+    /**
+     * Get conversations with filters, one keyset page at a time (same order as
+     * {@link #getConversationsWithFilters}). Each page costs the same however deep
+     * it is; the total is only counted on the first page when asked for.
+     *
+     * @throws IllegalArgumentException if the cursor is not one this listing issued
+     */
+    public CursorPage<ConversationDTO> getConversationsAfter(
+            ConversationStatus status,
+            UrgencyLevel urgencyLevel,
+            UUID agentId,
+            String cursor,
+            int size,
+            boolean includeTotal) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<Conversation> conversations;
+        if (cursor == null || cursor.isEmpty()) {
+            conversations = conversationRepository.findWithFiltersFirst(
+                    status, urgencyLevel, agentId, limit);
+        } else {
+            String[] key = CursorPage.decodeCursor(cursor, 3);
+            try {
+                conversations = conversationRepository.findWithFiltersAfter(
+                        status, urgencyLevel, agentId,
+                        Integer.valueOf(key[0]), LocalDateTime.parse(key[1]), UUID.fromString(key[2]), limit);
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        String nextCursor = null;
+        if (conversations.size() > pageSize) {
+            conversations = conversations.subList(0, pageSize);
+            Conversation last = conversations.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(String.valueOf(last.getUrgencyScore()),
+                    last.getLastMessageAt().toString(), last.getId().toString());
+        }
+
+        List<ConversationDTO> items = new ArrayList<>();
+        for (Conversation conv : conversations) {
+            items.add(toDto(conv));
+        }
+        Long total = includeTotal && (cursor == null || cursor.isEmpty())
+                ? conversationRepository.countWithFilters(status, urgencyLevel, agentId) : null;
+        return new CursorPage<>(items, nextCursor, total);
     }
 
     /**
@@ -66,7 +204,7 @@ public class ConversationService {
     public Optional<ConversationDTO> getConversationById(UUID id) {
         Optional<Conversation> conv = conversationRepository.findById(id);
         if (conv.isPresent()) {
-            return Optional.of(ConversationDTO.fromEntity(conv.get()));
+            return Optional.of(toDto(conv.get()));
         }
         return Optional.empty();
     }
@@ -89,13 +227,38 @@ public class ConversationService {
             );
         }
         
-        return Optional.of(ConversationDTO.fromEntityWithMessages(conversation));
+        LocalDateTime lastReadAt = conversationHeaderBuffer.lastReadAt(id, conversation.getLastReadAt());
+        return Optional.of(conversationHeaderBuffer.merge(
+                ConversationDTO.fromEntityWithMessages(conversation, lastReadAt)));
+    }
+
+    /**
+     * Get conversation with only its latest {@code size} messages (oldest first) and
+     * a cursor for loading older ones page by page
+     */
+    @Transactional(readOnly = true)
+    public Optional<ConversationDTO> getConversationWithLatestMessages(UUID id, int size) {
+        Optional<Conversation> conversationOpt = conversationRepository.findById(id);
+        if (conversationOpt.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ConversationDTO dto = toDto(conversationOpt.get());
+        MessageWindow window = messageService.getMessageWindow(id, null, null, size);
+        dto.setMessages(window.getItems());
+        dto.setMessagesBeforeCursor(window.getBeforeCursor());
+        return Optional.of(dto);
     }
 
     /**
-     * Get all open conversations sorted by urgency
+     * Get all open conversations sorted by urgency, from the in-memory queue once it is loaded
+     *
+     * @param limit maximum number returned, or null for all
      */
-    public List<ConversationDTO> getOpenConversations() {
+    public List<ConversationDTO> getOpenConversations(Integer limit) {
+        if (openConversationQueue.isReady()) {
+            return openConversationQueue.getOpen(limit);
+        }
         List<ConversationStatus> openStatuses = Arrays.asList(
                 ConversationStatus.OPEN,
                 ConversationStatus.IN_PROGRESS,
@@ -104,24 +267,58 @@ public class ConversationService {
         List<Conversation> conversations = conversationRepository.findOpenConversationsOrderByUrgency(openStatuses);
         
         List<ConversationDTO> result = new ArrayList<>();
-        for (Conversation conv : conversations) {
-            result.add(ConversationDTO.fromEntity(conv));
+        for (Conversation conv : limit(conversations, limit)) {
+            result.add(toDto(conv));
         }
         return result;
     }
 
     /**
-     * Get unassigned conversations
+     * Get unassigned conversations, from the in-memory queue once it is loaded
+     *
+     * @param limit maximum number returned, or null for all
      */
-    public List<ConversationDTO> getUnassignedConversations() {
+    public List<ConversationDTO> getUnassignedConversations(Integer limit) {
+        if (openConversationQueue.isReady()) {
+            return openConversationQueue.getUnassigned(limit);
+        }
         List<Conversation> conversations = conversationRepository.findUnassignedConversations();
         List<ConversationDTO> result = new ArrayList<>();
-        for (Conversation conv : conversations) {
-            result.add(ConversationDTO.fromEntity(conv));
+        for (Conversation conv : limit(conversations, limit)) {
+            result.add(toDto(conv));
         }
         return result;
     }
 
+    /**
+     * Like {@link #getOpenConversations}, as summaries
+     */
+    public List<ConversationSummary> getOpenConversationSummaries(Integer limit) {
+        if (openConversationQueue.isReady()) {
+            return openConversationQueue.getOpenSummaries(limit);
+        }
+        List<ConversationStatus> openStatuses = Arrays.asList(
+                ConversationStatus.OPEN,
+                ConversationStatus.IN_PROGRESS,
+                ConversationStatus.WAITING
+        );
+        return merge(limit(conversationRepository.findOpenSummariesOrderByUrgency(openStatuses), limit));
+    }
+
+    /**
+     * Like {@link #getUnassignedConversations}, as summaries
+     */
+    public List<ConversationSummary> getUnassignedConversationSummaries(Integer limit) {
+        if (openConversationQueue.isReady()) {
+            return openConversationQueue.getUnassignedSummaries(limit);
+        }
+        return merge(limit(conversationRepository.findUnassignedSummaries(), limit));
+    }
+
+    private static <T> List<T> limit(List<T> items, Integer limit) {
+        return limit != null && limit < items.size() ? items.subList(0, Math.max(limit, 0)) : items;
+    }
+
     /**
      * Get conversations assigned to specific agent
      */
@@ -129,7 +326,7 @@ public class ConversationService {
         List<Conversation> conversations = conversationRepository.findActiveConversationsByAgent(agentId);
         List<ConversationDTO> result = new ArrayList<>();
         for (Conversation conv : conversations) {
-            result.add(ConversationDTO.fromEntity(conv));
+            result.add(toDto(conv));
         }
         return result;
     }
@@ -141,7 +338,7 @@ public class ConversationService {
         List<Conversation> conversations = conversationRepository.findByCustomerId(customerId);
         List<ConversationDTO> result = new ArrayList<>();
         for (Conversation conv : conversations) {
-            result.add(ConversationDTO.fromEntity(conv));
+            result.add(toDto(conv));
         }
         return result;
     }
@@ -157,6 +354,8 @@ public class ConversationService {
         Agent agent = agentService.findById(agentId)
                 .orElseThrow(() -> new RuntimeException("Agent not found"));
 
+        ConversationStatus previousStatus = conversation.getStatus();
+
         // If previous agent exists, update their count
         if (conversation.getAssignedAgent() != null) {
             agentService.decrementActiveConversations(conversation.getAssignedAgent().getId());
@@ -167,7 +366,9 @@ public class ConversationService {
         agentService.incrementActiveConversations(agentId);
 
         Conversation saved = conversationRepository.save(conversation);
-        return ConversationDTO.fromEntity(saved);
+        openConversationQueue.updateAfterCommit(saved);
+        dashboardCounters.conversationChangedAfterCommit(previousStatus, saved.getUrgencyLevel(), saved);
+        return toDto(saved);
     }
 
     /**
@@ -178,6 +379,7 @@ public class ConversationService {
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
 
+        ConversationStatus previousStatus = conversation.getStatus();
         conversation.setStatus(status);
 
         // Handle resolved status - update agent stats
@@ -187,33 +389,42 @@ public class ConversationService {
         }
 
         Conversation saved = conversationRepository.save(conversation);
-        return ConversationDTO.fromEntity(saved);
+        openConversationQueue.updateAfterCommit(saved);
+        dashboardCounters.conversationChangedAfterCommit(previousStatus, saved.getUrgencyLevel(), saved);
+        return toDto(saved);
     }
 
     /**
-     * Mark all messages in conversation as read
+     * Mark all messages in conversation as read by moving its read watermark to
+     * now; a single-row write however many messages it has, coalesced with the
+     * conversation's other header changes (see ConversationHeaderBuffer)
      */
     @Transactional
     public void markMessagesAsRead(UUID conversationId) {
-        messageRepository.markAllAsReadForConversation(conversationId);
-        
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
-        conversation.setUnreadCount(0);
-        conversationRepository.save(conversation);
+        // Recorded before the queue update so the queue picks it up
+        conversationHeaderBuffer.markReadAfterCommit(conversationId, LocalDateTime.now());
+        openConversationQueue.updateAfterCommit(conversation);
     }
 
     /**
-     * Count active conversations
+     * Count active conversations (in-memory counter once reconciled)
      */
     public long countActiveConversations() {
+        if (dashboardCounters.isReady()) {
+            return dashboardCounters.getActiveConversations();
+        }
         return conversationRepository.countActiveConversations();
     }
 
     /**
-     * Count urgent conversations
+     * Count urgent conversations (in-memory counter once reconciled)
      */
     public long countUrgentConversations() {
+        if (dashboardCounters.isReady()) {
+            return dashboardCounters.getUrgentConversations();
+        }
         return conversationRepository.countUrgentConversations();
     }
 }
@@ -1,24 +1,46 @@
 package com.support.service;
 
-import com.opencsv.CSVReader;
 import com.support.model.*;
 import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Conversation.UrgencyLevel;
+import com.support.model.JobCheckpoint.JobStatus;
 import com.support.model.Message.SenderType;
 import com.support.repository.*;
 import com.support.service.UrgencyDetectionService.UrgencyResult;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.InputStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service to import customer messages from CSV file on startup.
  * Also creates default agents and canned messages.
+ * <p>
+ * Seeding runs on a background thread so the application serves requests
+ * while data is still loading; {@link #isSeeded()} reports when it is done.
+ * <p>
+ * Imports are incremental: every imported message keeps a key of its CSV row,
+ * so rows that are already in the database are skipped, and progress through
+ * a file is checkpointed so an interrupted import resumes where it stopped.
  */
 @Service
 public class CsvImportService implements CommandLineRunner {
@@ -28,40 +50,165 @@ public class CsvImportService implements CommandLineRunner {
     private final MessageRepository messageRepository;
     private final AgentRepository agentRepository;
     private final CannedMessageRepository cannedMessageRepository;
+    private final CannedMessageAutocomplete cannedMessageAutocomplete;
     private final UrgencyDetectionService urgencyDetectionService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final SearchResultCache searchResultCache;
+    private final OpenConversationQueue openConversationQueue;
+    private final DashboardCounters dashboardCounters;
+    private final ConversationHeaderBuffer conversationHeaderBuffer;
     private final ResourceLoader resourceLoader;
+    private final JobCheckpointRepository checkpointRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Startup seeding and admin-triggered imports run here, one at a time
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "csv-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean importRunning = new AtomicBoolean();
+    private volatile ImportProgress importProgress = ImportProgress.idle();
+    private volatile SeedingState seedingState = SeedingState.PENDING;
+
+    private static final String CHECKPOINT_PREFIX = "csv-import:";
+
+    // Conversations resolved or closed before new rows arrived are reopened, and urgency is raised
+    // when the chunk's most urgent new row scores higher, as for live messages. Last message and
+    // unread count go through ConversationHeaderBuffer instead.
+    private static final String UPDATE_HEADER_SQL =
+            "UPDATE conversations SET " +
+            "updated_at = ?, status = CASE WHEN status IN ('RESOLVED', 'CLOSED') THEN 'OPEN' ELSE status END, " +
+            "urgency_level = CASE WHEN ? > urgency_score THEN ? ELSE urgency_level END, " +
+            "urgency_reason = CASE WHEN ? > urgency_score THEN ? ELSE urgency_reason END, " +
+            "urgency_score = CASE WHEN ? > urgency_score THEN ? ELSE urgency_score END " +
+            "WHERE id = ?";
 
     @Value("${app.csv.file-path:classpath:data/GeneralistRails_Project_MessageData.csv}")
     private String csvFilePath;
 
+    // Directory the admin import endpoint reads from; files outside it are refused
+    @Value("${app.csv.import-dir:imports}")
+    private String importDir;
+
+    // Import new rows of the configured file when the database already has data
+    @Value("${app.csv.incremental-on-startup:true}")
+    private boolean incrementalOnStartup;
+
+    // Rows per transaction / JDBC batch
+    @Value("${app.csv.batch-size:1000}")
+    private int batchSize;
+
+    // Worker threads for partitioned import (1 = import on the calling thread)
+    @Value("${app.csv.import-threads:1}")
+    private int importThreads;
+
+    // Files at least this large are memory-mapped and parsed in parallel segments
+    @Value("${app.csv.mapped-threshold-mb:64}")
+    private long mappedThresholdMb;
+
+    @Value("${app.csv.mapped-segment-mb:16}")
+    private long mappedSegmentMb;
+
+    // Parser threads for mapped files (0 = one per available core)
+    @Value("${app.csv.parse-threads:0}")
+    private int parseThreads;
+
     // Constructor injection
     public CsvImportService(CustomerRepository customerRepository,
                            ConversationRepository conversationRepository,
                            MessageRepository messageRepository,
                            AgentRepository agentRepository,
                            CannedMessageRepository cannedMessageRepository,
+                           CannedMessageAutocomplete cannedMessageAutocomplete,
                            UrgencyDetectionService urgencyDetectionService,
-                           ResourceLoader resourceLoader) {
+                           MessageSearchIndex messageSearchIndex,
+                           CustomerSearchIndex customerSearchIndex,
+                           SearchResultCache searchResultCache,
+                           OpenConversationQueue openConversationQueue,
+                           DashboardCounters dashboardCounters,
+                           ConversationHeaderBuffer conversationHeaderBuffer,
+                           ResourceLoader resourceLoader,
+                           JobCheckpointRepository checkpointRepository,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager) {
         this.customerRepository = customerRepository;
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.agentRepository = agentRepository;
         this.cannedMessageRepository = cannedMessageRepository;
+        this.cannedMessageAutocomplete = cannedMessageAutocomplete;
         this.urgencyDetectionService = urgencyDetectionService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.customerSearchIndex = customerSearchIndex;
+        this.searchResultCache = searchResultCache;
+        this.openConversationQueue = openConversationQueue;
+        this.dashboardCounters = dashboardCounters;
+        this.conversationHeaderBuffer = conversationHeaderBuffer;
         this.resourceLoader = resourceLoader;
+        this.checkpointRepository = checkpointRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * Start seeding in the background; startup does not wait for it
+     */
     @Override
     public void run(String... args) {
-        // Only initialize if database is empty
-        if (conversationRepository.count() == 0) {
-            System.out.println("Initializing database with sample data...");
-            createAgents();
-            createCannedMessages();
-            importCsvData();
+        seedingState = SeedingState.RUNNING;
+        executor.submit(this::seed);
+    }
+
+    private void seed() {
+        try {
+            // Only initialize if database is empty
+            if (conversationRepository.count() == 0) {
+                System.out.println("Initializing database with sample data...");
+                createAgents();
+                createCannedMessages();
+                importCsvData();
+            } else if (incrementalOnStartup && resourceLoader.getResource(csvFilePath).exists()) {
+                try {
+                    ImportProgress result = importFile(csvFilePath);
+                    System.out.println("Incremental CSV import: " + result.getRowsWritten() + " new messages, "
+                            + result.getDuplicates() + " already imported");
+                } catch (Exception e) {
+                    System.out.println("Error in incremental CSV import: " + e.getMessage());
+                }
+            }
+            seedingState = SeedingState.COMPLETED;
+        } catch (Exception e) {
+            System.out.println("Error seeding database: " + e.getMessage());
+            e.printStackTrace();
+            seedingState = SeedingState.FAILED;
+        } finally {
+            // Seeded agents and reopened conversations are not reported one by one
+            dashboardCounters.reconcile();
         }
     }
 
+    /**
+     * True once startup seeding has finished, successfully or not
+     */
+    public boolean isSeeded() {
+        return seedingState == SeedingState.COMPLETED || seedingState == SeedingState.FAILED;
+    }
+
+    public SeedingState getSeedingState() {
+        return seedingState;
+    }
+
+    /**
+     * Progress of the running or last CSV import
+     */
+    public ImportProgress getImportProgress() {
+        return importProgress;
+    }
+
     /**
      * Create default support agents
      */
@@ -110,56 +257,387 @@ public class CsvImportService implements CommandLineRunner {
             msg.setIsActive(true);
             cannedMessageRepository.save(msg);
         }
+        cannedMessageAutocomplete.reload();
     }
 
     /**
-     * Import customer messages from CSV file
+     * Import customer messages from CSV file into an empty database,
+     * falling back to sample data if nothing could be imported.
      */
     private void importCsvData() {
+        Resource resource = resourceLoader.getResource(csvFilePath);
+        if (!resource.exists()) {
+            System.out.println("CSV file not found, creating sample data...");
+            createSampleData();
+            return;
+        }
+
         try {
-            Resource resource = resourceLoader.getResource(csvFilePath);
-            if (!resource.exists()) {
-                System.out.println("CSV file not found, creating sample data...");
+            ImportProgress result = importFile(csvFilePath);
+            System.out.println("Imported " + result.getRowsWritten() + " messages from CSV");
+        } catch (Exception e) {
+            System.out.println("Error importing CSV: " + e.getMessage());
+            e.printStackTrace();
+            if (conversationRepository.count() == 0) {
                 createSampleData();
-                return;
             }
+        }
+    }
+
+    /**
+     * Import a CSV export, skipping rows that are already in the database.
+     * Rows are streamed, so memory stays bounded regardless of file size, and
+     * written in chunks of {@code batchSize} rows, each in its own transaction
+     * with Hibernate JDBC batching. With {@code importThreads > 1} rows are
+     * partitioned by User ID across parallel writers. Large files are parsed
+     * from a memory mapping instead of a Reader.
+     * <p>
+     * The file's checkpoint (identity plus rows consumed) lets a re-run skip
+     * straight past rows committed by an interrupted run, and a file that was
+     * already fully imported is not read again. Rows of existing customers are
+     * appended to their latest conversation.
+     *
+     * @param location Spring resource location, e.g. {@code file:/exports/2024-05-01.csv}
+     */
+    public ImportProgress importFile(String location) throws Exception {
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("CSV file not found: " + location);
+        }
+        acquireImport();
+        try {
+            return importResource(resource, startProgress(resource));
+        } finally {
+            importRunning.set(false);
+        }
+    }
 
-            CSVReader reader = new CSVReader(new InputStreamReader(resource.getInputStream()));
-            List<String[]> records = reader.readAll();
-            reader.close();
-
-            // Skip header row, process each record
-            Map<String, Customer> customers = new HashMap<>();
-            Map<String, Conversation> conversations = new HashMap<>();
-
-            for (int i = 1; i < records.size(); i++) {
-                String[] row = records.get(i);
-                if (row.length < 3) continue;
-
-                String userId = row[0].trim();
-                String messageContent = row[2].trim();
-
-                if (messageContent.isEmpty()) continue;
-
-                // Get or create customer
-                Customer customer = customers.get(userId);
-                if (customer == null) {
-                    customer = new Customer();
-                    customer.setName("Customer " + userId);
-                    customer.setEmail("user" + userId + "@customer.com");
-                    customer.setAccountStatus("ACTIVE");
-                    customer.setLoanStatus("ACTIVE");
-                    customer.setTotalConversations(0); // Initialize to 0
-                    customer = customerRepository.save(customer);
-                    customers.put(userId, customer);
+    /**
+     * Start importing a CSV export from the import directory in the background;
+     * see {@link #importFile(String)}
+     *
+     * @param fileName path of the file relative to {@code app.csv.import-dir}
+     */
+    public ImportProgress startImport(String fileName) throws Exception {
+        Resource resource = resolveImportFile(fileName);
+        acquireImport();
+        String location = resource.getDescription();
+        ImportProgress progress;
+        try {
+            progress = startProgress(resource);
+            executor.submit(() -> {
+                try {
+                    importResource(resource, progress);
+                } catch (Exception e) {
+                    System.out.println("Error importing " + location + ": " + e.getMessage());
+                } finally {
+                    importRunning.set(false);
                 }
+            });
+        } catch (Exception e) {
+            importRunning.set(false);
+            throw e;
+        }
+        return progress;
+    }
+
+    /**
+     * The regular file {@code fileName} names inside the import directory. Resource
+     * locations (URLs, classpath:) and paths leading out of the directory, also
+     * through links, are refused.
+     */
+    private Resource resolveImportFile(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("CSV file name is required");
+        }
+        if (fileName.matches("^[A-Za-z][A-Za-z0-9+.-]*:.*")) {
+            throw new IllegalArgumentException("CSV file must be a file name in the import directory, not a location: "
+                    + fileName);
+        }
+        Path file;
+        try {
+            Path dir = Path.of(importDir).toAbsolutePath().normalize();
+            file = dir.resolve(fileName).normalize();
+            if (!file.startsWith(dir)) {
+                throw new IllegalArgumentException("CSV file is outside the import directory: " + fileName);
+            }
+            if (!Files.isRegularFile(file)) {
+                throw new IllegalArgumentException("CSV file not found: " + fileName);
+            }
+            if (!file.toRealPath().startsWith(dir.toRealPath())) {
+                throw new IllegalArgumentException("CSV file is outside the import directory: " + fileName);
+            }
+        } catch (InvalidPathException | IOException e) {
+            throw new IllegalArgumentException("Invalid CSV file name: " + fileName);
+        }
+        return new FileSystemResource(file);
+    }
+
+    private void acquireImport() {
+        if (!importRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("A CSV import is already running");
+        }
+    }
+
+    private ImportProgress startProgress(Resource resource) {
+        long totalBytes;
+        try {
+            totalBytes = resource.contentLength();
+        } catch (IOException e) {
+            totalBytes = -1;
+        }
+        importProgress = new ImportProgress(resource.getDescription(), totalBytes);
+        return importProgress;
+    }
+
+    private ImportProgress importResource(Resource resource, ImportProgress result) throws Exception {
+        String jobName = CHECKPOINT_PREFIX + resource.getFilename();
+        String identity = fileIdentity(resource);
+
+        JobCheckpoint checkpoint = checkpointRepository.findById(jobName)
+                .orElseGet(() -> JobCheckpoint.builder().jobName(jobName).build());
+        long resumeAfter = 0;
+        String position = checkpoint.getPosition();
+        if (position != null && position.startsWith(identity + "|")) {
+            long rows = Long.parseLong(position.substring(identity.length() + 1));
+            if (checkpoint.getStatus() == JobStatus.COMPLETED) {
+                System.out.println("CSV file " + resource.getFilename() + " was already imported, skipping");
+                result.finish(ImportProgress.Status.ALREADY_IMPORTED, null);
+                return result;
+            }
+            resumeAfter = rows;
+            System.out.println("Resuming CSV import of " + resource.getFilename() + " after row " + rows);
+        }
+        checkpoint.setStatus(JobStatus.RUNNING);
+        checkpoint.setPosition(identity + "|" + resumeAfter);
+        checkpointRepository.save(checkpoint);
+
+        try (CsvRowSource rows = openRowSource(resource)) {
+            boolean existingData = conversationRepository.count() > 0;
+            LongHashSet importedKeys = existingData ? loadImportKeys() : new LongHashSet(0);
 
-                // Analyze message urgency
-                UrgencyResult urgency = urgencyDetectionService.analyzeUrgency(messageContent);
+            ImportRun run = new ImportRun(rows, importedKeys, resumeAfter, existingData, jobName, identity, result);
+            if (importThreads > 1) {
+                importPartitioned(run, importThreads);
+            } else {
+                importSequential(run);
+            }
+            saveCheckpoint(jobName, identity + "|" + run.rowsRead, JobStatus.COMPLETED);
+            result.bytesRead = rows.bytesRead();
+            result.finish(ImportProgress.Status.COMPLETED, null);
+            return result;
+        } catch (Exception e) {
+            // Keep the last committed position so the next run resumes from there
+            saveCheckpoint(jobName, null, JobStatus.FAILED);
+            result.finish(ImportProgress.Status.FAILED, e.getMessage());
+            throw e;
+        } finally {
+            // Header updates in SQL can reopen conversations without reporting it
+            dashboardCounters.reconcile();
+        }
+    }
 
-                // Get or create conversation
-                Conversation conversation = conversations.get(userId);
-                if (conversation == null) {
+    /**
+     * Identity of a file for checkpointing: a checkpoint only applies to the exact same content
+     */
+    private String fileIdentity(Resource resource) throws Exception {
+        long lastModified;
+        try {
+            lastModified = resource.lastModified();
+        } catch (IOException e) {
+            lastModified = 0;
+        }
+        return resource.getURI() + "|" + resource.contentLength() + "|" + lastModified;
+    }
+
+    /**
+     * Keys of all messages imported so far, held compactly for duplicate checks
+     */
+    private LongHashSet loadImportKeys() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(import_key) FROM messages", Long.class);
+        LongHashSet keys = new LongHashSet((int) Math.min(count == null ? 0 : count, 1 << 28));
+        jdbcTemplate.query("SELECT import_key FROM messages WHERE import_key IS NOT NULL",
+                rs -> { keys.add(rs.getLong(1)); });
+        return keys;
+    }
+
+    /**
+     * Update the checkpoint status, and the position unless {@code position} is null
+     */
+    private void saveCheckpoint(String jobName, String position, JobStatus status) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            JobCheckpoint checkpoint = checkpointRepository.findById(jobName)
+                    .orElseGet(() -> JobCheckpoint.builder().jobName(jobName).build());
+            if (position != null) {
+                checkpoint.setPosition(position);
+            }
+            checkpoint.setStatus(status);
+            checkpointRepository.save(checkpoint);
+        });
+    }
+
+    /**
+     * Open a row source for the CSV file. Large files on the local file system are
+     * memory-mapped and parsed from the raw bytes in parallel segments; anything
+     * else (small files, classpath resources inside a jar) goes through OpenCSV.
+     */
+    private CsvRowSource openRowSource(Resource resource) throws Exception {
+        if (resource.isFile()) {
+            File file = resource.getFile();
+            if (file.length() >= mappedThresholdMb * 1024 * 1024) {
+                int threads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+                System.out.println("Memory-mapping " + file.length() / (1024 * 1024) + " MB CSV file with "
+                        + threads + " parser threads");
+                return new MappedCsvRowSource(file.toPath(), mappedSegmentMb * 1024 * 1024, threads);
+            }
+        }
+        return new OpenCsvRowSource(resource.getInputStream());
+    }
+
+    /**
+     * Import all rows on the calling thread, checkpointing after every chunk
+     */
+    private void importSequential(ImportRun run) throws Exception {
+        Map<String, ImportedUser> users = new HashMap<>();
+        List<CsvMessageRow> chunk = new ArrayList<>(batchSize);
+        CsvMessageRow row;
+        while ((row = run.next()) != null) {
+            chunk.add(row);
+            if (chunk.size() >= batchSize) {
+                writeChunk(chunk, users, run, run.rowsRead);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, users, run, run.rowsRead);
+        }
+    }
+
+    /**
+     * Import rows with several workers, hash-partitioned by User ID.
+     * Each worker owns the state for its users and writes through its own
+     * transactions, so no locking is needed, and a single FIFO queue per worker
+     * keeps each user's rows in file order. Bounded queues let the reader run
+     * at most a couple of chunks ahead of the writers. Workers commit independently,
+     * so there is no single row position to checkpoint; an interrupted run is
+     * resumed through the row keys instead.
+     */
+    private void importPartitioned(ImportRun run, int workers) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "csv-import-" + counter.incrementAndGet());
+            }
+        });
+
+        List<BlockingQueue<List<CsvMessageRow>>> queues = new ArrayList<>(workers);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        List<List<CsvMessageRow>> buffers = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            BlockingQueue<List<CsvMessageRow>> queue = new ArrayBlockingQueue<>(2);
+            queues.add(queue);
+            buffers.add(new ArrayList<>(batchSize));
+            futures.add(pool.submit(() -> {
+                Map<String, ImportedUser> users = new HashMap<>();
+                while (true) {
+                    List<CsvMessageRow> chunk = queue.take();
+                    if (chunk.isEmpty()) {
+                        return null; // end of input
+                    }
+                    writeChunk(chunk, users, run, -1);
+                }
+            }));
+        }
+
+        try {
+            CsvMessageRow row;
+            while ((row = run.next()) != null) {
+                int partition = Math.floorMod(row.getUserId().hashCode(), workers);
+                List<CsvMessageRow> buffer = buffers.get(partition);
+                buffer.add(row);
+                if (buffer.size() >= batchSize) {
+                    handOff(queues.get(partition), buffer, futures.get(partition));
+                    buffers.set(partition, new ArrayList<>(batchSize));
+                }
+            }
+            for (int w = 0; w < workers; w++) {
+                if (!buffers.get(w).isEmpty()) {
+                    handOff(queues.get(w), buffers.get(w), futures.get(w));
+                }
+                handOff(queues.get(w), Collections.emptyList(), futures.get(w));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Queue a chunk for a worker, failing fast if that worker has died
+     */
+    private void handOff(BlockingQueue<List<CsvMessageRow>> queue, List<CsvMessageRow> chunk,
+                         Future<?> worker) throws Exception {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (worker.isDone()) {
+                worker.get();
+                throw new IllegalStateException("CSV import worker stopped unexpectedly");
+            }
+        }
+    }
+
+    /**
+     * Score and persist one chunk of rows in a single transaction.
+     * New customers, conversations and messages are inserted through JPA (batched by
+     * Hibernate); conversations created by earlier chunks are not loaded: status and
+     * urgency are updated in one JDBC batch, and the chunk's messages are handed to
+     * ConversationHeaderBuffer as one change per conversation. A non-negative
+     * {@code checkpointRows} is committed as the file position together with the rows.
+     */
+    private void writeChunk(List<CsvMessageRow> chunk, Map<String, ImportedUser> users,
+                            ImportRun run, long checkpointRows) {
+        List<String> bodies = new ArrayList<>(chunk.size());
+        for (CsvMessageRow row : chunk) {
+            bodies.add(row.getBody());
+        }
+        List<UrgencyResult> urgencies = urgencyDetectionService.analyzeUrgencyBatch(bodies);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Conversations inserted in this chunk are still managed, so they are updated in place
+            Map<String, Conversation> createdInChunk = new HashMap<>();
+            Set<ImportedUser> staleHeaders = new LinkedHashSet<>();
+            Map<String, Customer> existingCustomers = run.existingData
+                    ? findExistingUsers(chunk, users)
+                    : Collections.emptyMap();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                CsvMessageRow row = chunk.get(i);
+                String userId = row.getUserId();
+                String messageContent = row.getBody();
+                LocalDateTime now = LocalDateTime.now();
+
+                ImportedUser user = users.get(userId);
+                Conversation conversation;
+                if (user == null) {
+                    Customer customer = existingCustomers.get(userId);
+                    if (customer != null) {
+                        // Known customer without a conversation yet
+                        customer.setTotalConversations(customer.getTotalConversations() + 1);
+                    } else {
+                        customer = new Customer();
+                        customer.setName("Customer " + userId);
+                        customer.setEmail(importedEmail(userId));
+                        customer.setAccountStatus("ACTIVE");
+                        customer.setLoanStatus("ACTIVE");
+                        customer.setTotalConversations(1);
+                        customer = customerRepository.save(customer);
+                        customerSearchIndex.addAfterCommit(customer);
+                    }
+
+                    UrgencyResult urgency = urgencies.get(i);
                     conversation = new Conversation();
                     conversation.setCustomer(customer);
                     conversation.setSubject(truncate(messageContent, 50));
@@ -167,41 +645,150 @@ public class CsvImportService implements CommandLineRunner {
                     conversation.setUrgencyScore(urgency.getScore());
                     conversation.setUrgencyLevel(urgency.getLevel());
                     conversation.setUrgencyReason(urgency.getReason());
-                    conversation.setLastMessageAt(LocalDateTime.now());
+                    conversation.setLastMessageAt(now);
                     conversation.setLastMessagePreview(truncate(messageContent, 100));
                     conversation.setUnreadCount(1);
                     conversation = conversationRepository.save(conversation);
-                    conversations.put(userId, conversation);
-                    
-                    // Increment customer conversation count
-                    customer.setTotalConversations(customer.getTotalConversations() + 1);
-                    customerRepository.save(customer);
+                    dashboardCounters.conversationChangedAfterCommit(null, null, conversation);
+
+                    user = new ImportedUser(customer.getId(), customer.getName(), conversation.getId());
+                    users.put(userId, user);
+                    createdInChunk.put(userId, conversation);
                 } else {
-                    // Update existing conversation
-                    conversation.setUnreadCount(conversation.getUnreadCount() + 1);
-                    conversation.setLastMessagePreview(truncate(messageContent, 100));
-                    conversation.setLastMessageAt(LocalDateTime.now());
-                    conversationRepository.save(conversation);
+                    // Update existing conversation header
+                    UrgencyResult urgency = urgencies.get(i);
+                    conversation = createdInChunk.get(userId);
+                    if (conversation != null) {
+                        conversation.setUnreadCount(conversation.getUnreadCount() + 1);
+                        conversation.setLastMessagePreview(truncate(messageContent, 100));
+                        conversation.setLastMessageAt(now);
+                        if (urgency.getScore() > conversation.getUrgencyScore()) {
+                            UrgencyLevel previousLevel = conversation.getUrgencyLevel();
+                            conversation.setUrgencyScore(urgency.getScore());
+                            conversation.setUrgencyLevel(urgency.getLevel());
+                            conversation.setUrgencyReason(urgency.getReason());
+                            dashboardCounters.conversationChangedAfterCommit(
+                                    conversation.getStatus(), previousLevel, conversation);
+                        }
+                    } else {
+                        conversation = conversationRepository.getReferenceById(user.conversationId);
+                        user.chunkMessages++;
+                        user.chunkPreview = truncate(messageContent, 100);
+                        user.chunkLastMessageAt = now;
+                        if (user.chunkUrgency == null || urgency.getScore() > user.chunkUrgency.getScore()) {
+                            user.chunkUrgency = urgency;
+                        }
+                        staleHeaders.add(user);
+                    }
                 }
 
                 // Create message
                 Message message = new Message();
                 message.setConversation(conversation);
-                message.setSenderId(customer.getId());
+                message.setSenderId(user.customerId);
                 message.setSenderType(SenderType.CUSTOMER);
-                message.setSenderName(customer.getName());
+                message.setSenderName(user.customerName);
                 message.setContent(messageContent);
                 message.setIsRead(false);
+                message.setImportKey(row.importKey());
                 messageRepository.save(message);
+                messageSearchIndex.addAfterCommit(message);
             }
+            // After the rows' index adds, so no search between them caches the old results
+            searchResultCache.invalidateAllAfterCommit();
 
-            System.out.println("Imported " + (records.size() - 1) + " messages from CSV");
+            if (!staleHeaders.isEmpty()) {
+                List<Object[]> args = new ArrayList<>(staleHeaders.size());
+                for (ImportedUser user : staleHeaders) {
+                    UrgencyResult urgency = user.chunkUrgency;
+                    conversationHeaderBuffer.customerMessagesAfterCommit(
+                            user.conversationId, user.chunkLastMessageAt, user.chunkPreview, user.chunkMessages);
+                    user.chunkUrgency = null;
+                    user.chunkMessages = 0;
+                    user.chunkPreview = null;
+                    user.chunkLastMessageAt = null;
+                    args.add(new Object[]{
+                            LocalDateTime.now(),
+                            urgency.getScore(), urgency.getLevel().name(),
+                            urgency.getScore(), urgency.getReason(),
+                            urgency.getScore(), urgency.getScore(),
+                            user.conversationId
+                    });
+                }
+                jdbcTemplate.batchUpdate(UPDATE_HEADER_SQL, args);
+            }
 
-        } catch (Exception e) {
-            System.out.println("Error importing CSV: " + e.getMessage());
-            e.printStackTrace();
-            createSampleData();
+            Set<UUID> conversationIds = new LinkedHashSet<>();
+            for (Conversation conversation : createdInChunk.values()) {
+                conversationIds.add(conversation.getId());
+            }
+            for (ImportedUser user : staleHeaders) {
+                conversationIds.add(user.conversationId);
+            }
+            openConversationQueue.reloadAfterCommit(conversationIds);
+
+            if (checkpointRows >= 0) {
+                JobCheckpoint checkpoint = checkpointRepository.findById(run.jobName)
+                        .orElseGet(() -> JobCheckpoint.builder().jobName(run.jobName).build());
+                checkpoint.setPosition(run.identity + "|" + checkpointRows);
+                checkpoint.setProcessed(checkpointRows);
+                checkpointRepository.save(checkpoint);
+            }
+        });
+        run.result.rowsWritten.addAndGet(chunk.size());
+    }
+
+    /**
+     * Look up customers from earlier imports for User IDs first seen in this chunk.
+     * Those with a conversation are registered in {@code users} against their latest
+     * conversation; the rest are returned so a conversation can be created for them.
+     */
+    private Map<String, Customer> findExistingUsers(List<CsvMessageRow> chunk, Map<String, ImportedUser> users) {
+        Map<String, String> userIdByEmail = new HashMap<>();
+        for (CsvMessageRow row : chunk) {
+            if (!users.containsKey(row.getUserId())) {
+                userIdByEmail.put(importedEmail(row.getUserId()), row.getUserId());
+            }
+        }
+        if (userIdByEmail.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UUID, Customer> customersById = new HashMap<>();
+        for (Customer customer : customerRepository.findByEmailIn(new ArrayList<>(userIdByEmail.keySet()))) {
+            customersById.put(customer.getId(), customer);
+        }
+        if (customersById.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Latest conversation per customer
+        Map<UUID, Conversation> latest = new HashMap<>();
+        for (Conversation conversation : conversationRepository.findByCustomerIdIn(
+                new ArrayList<>(customersById.keySet()))) {
+            UUID customerId = conversation.getCustomer().getId();
+            Conversation current = latest.get(customerId);
+            if (current == null || (conversation.getLastMessageAt() != null && (current.getLastMessageAt() == null
+                    || conversation.getLastMessageAt().isAfter(current.getLastMessageAt())))) {
+                latest.put(customerId, conversation);
+            }
+        }
+
+        Map<String, Customer> withoutConversation = new HashMap<>();
+        for (Customer customer : customersById.values()) {
+            String userId = userIdByEmail.get(customer.getEmail());
+            Conversation conversation = latest.get(customer.getId());
+            if (conversation == null) {
+                withoutConversation.put(userId, customer);
+                continue;
+            }
+            users.put(userId, new ImportedUser(customer.getId(), customer.getName(), conversation.getId()));
         }
+        return withoutConversation;
+    }
+
+    private static String importedEmail(String userId) {
+        return "user" + userId + "@customer.com";
     }
 
     /**
@@ -227,6 +814,7 @@ public class CsvImportService implements CommandLineRunner {
             customer.setAccountStatus("ACTIVE");
             customer.setTotalConversations(0);
             customer = customerRepository.save(customer);
+            customerSearchIndex.addAfterCommit(customer);
 
             // Analyze urgency
             UrgencyResult urgency = urgencyDetectionService.analyzeUrgency(sample[1]);
@@ -243,10 +831,12 @@ public class CsvImportService implements CommandLineRunner {
             conversation.setLastMessagePreview(truncate(sample[1], 100));
             conversation.setUnreadCount(1);
             conversation = conversationRepository.save(conversation);
+            dashboardCounters.conversationChangedAfterCommit(null, null, conversation);
 
             // Increment customer conversation count
             customer.setTotalConversations(customer.getTotalConversations() + 1);
             customerRepository.save(customer);
+            openConversationQueue.updateAfterCommit(conversation);
 
             // Create message
             Message message = new Message();
@@ -257,8 +847,10 @@ public class CsvImportService implements CommandLineRunner {
             message.setContent(sample[1]);
             message.setIsRead(false);
             messageRepository.save(message);
+            messageSearchIndex.addAfterCommit(message);
         }
 
+        searchResultCache.invalidateAllAfterCommit();
         System.out.println("Created " + samples.length + " sample conversations");
     }
 
@@ -271,4 +863,206 @@ public class CsvImportService implements CommandLineRunner {
         }
         return text.substring(0, maxLength - 3) + "...";
     }
+
+    /**
+     * Import state kept per CSV User ID across chunks (ids only, no entities)
+     */
+    private static class ImportedUser {
+        private final UUID customerId;
+        private final String customerName;
+        private final UUID conversationId;
+        // Rows appended in the current chunk to a conversation from an earlier one: how many,
+        // the latest one's preview and time, and the most urgent one
+        private int chunkMessages;
+        private String chunkPreview;
+        private LocalDateTime chunkLastMessageAt;
+        private UrgencyResult chunkUrgency;
+
+        ImportedUser(UUID customerId, String customerName, UUID conversationId) {
+            this.customerId = customerId;
+            this.customerName = customerName;
+            this.conversationId = conversationId;
+        }
+    }
+
+    /**
+     * One run of an import. Filters the parsed rows, dropping rows before the
+     * checkpoint and rows that were already imported, and carries what the chunk
+     * writer needs. {@link #next()} is only called from the reading thread.
+     */
+    private static class ImportRun implements CsvRowSource {
+        private final CsvRowSource rows;
+        private final LongHashSet importedKeys;
+        private final long resumeAfter;
+        private final boolean existingData;
+        private final String jobName;
+        private final String identity;
+        private final ImportProgress result;
+        private long rowsRead;
+
+        ImportRun(CsvRowSource rows, LongHashSet importedKeys, long resumeAfter, boolean existingData,
+                  String jobName, String identity, ImportProgress result) {
+            this.rows = rows;
+            this.importedKeys = importedKeys;
+            this.resumeAfter = resumeAfter;
+            this.existingData = existingData;
+            this.jobName = jobName;
+            this.identity = identity;
+            this.result = result;
+        }
+
+        @Override
+        public CsvMessageRow next() throws IOException {
+            CsvMessageRow row;
+            while ((row = rows.next()) != null) {
+                rowsRead++;
+                result.rowsRead = rowsRead;
+                if ((rowsRead & 1023) == 0) {
+                    result.bytesRead = rows.bytesRead();
+                }
+                if (rowsRead <= resumeAfter) {
+                    result.resumedAfter++;
+                    continue;
+                }
+                if (!importedKeys.add(row.importKey())) {
+                    result.duplicates++;
+                    continue;
+                }
+                return row;
+            }
+            return null;
+        }
+
+        @Override
+        public long bytesRead() {
+            return rows.bytesRead();
+        }
+
+        @Override
+        public void close() {
+            // The underlying source is closed by whoever opened it
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public enum SeedingState {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Live progress of one CSV import. Counters are written by the import
+     * threads and read by the status endpoint.
+     */
+    public static class ImportProgress {
+        private final String source;
+        private final long totalBytes;
+        private final AtomicLong rowsWritten = new AtomicLong();
+        private final LocalDateTime startedAt;
+        private volatile Status status;
+        private volatile long rowsRead;
+        private volatile long bytesRead;
+        private volatile long resumedAfter;
+        private volatile long duplicates;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        ImportProgress(String source, long totalBytes) {
+            this(source, totalBytes, Status.RUNNING, LocalDateTime.now());
+        }
+
+        private ImportProgress(String source, long totalBytes, Status status, LocalDateTime startedAt) {
+            this.source = source;
+            this.totalBytes = totalBytes;
+            this.status = status;
+            this.startedAt = startedAt;
+        }
+
+        static ImportProgress idle() {
+            return new ImportProgress(null, -1, Status.IDLE, null);
+        }
+
+        void finish(Status newStatus, String newError) {
+            this.error = newError;
+            this.finishedAt = LocalDateTime.now();
+            this.status = newStatus;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten.get();
+        }
+
+        // Rows skipped without a key check because an earlier run had committed them
+        public long getResumedAfter() {
+            return resumedAfter;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public double getRowsPerSecond() {
+            double seconds = elapsedSeconds();
+            return seconds > 0 ? getRowsWritten() / seconds : 0;
+        }
+
+        /**
+         * Estimated seconds left, from the share of the file read so far; null if unknown
+         */
+        public Long getEtaSeconds() {
+            long read = bytesRead;
+            double seconds = elapsedSeconds();
+            if (status != Status.RUNNING || totalBytes <= 0 || read <= 0 || seconds <= 0) {
+                return null;
+            }
+            return Math.round((totalBytes - Math.min(read, totalBytes)) * seconds / read);
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        private double elapsedSeconds() {
+            if (startedAt == null) {
+                return 0;
+            }
+            LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            return Duration.between(startedAt, end).toMillis() / 1000.0;
+        }
+
+        public enum Status {
+            IDLE, RUNNING, COMPLETED, ALREADY_IMPORTED, FAILED
+        }
+    }
 }
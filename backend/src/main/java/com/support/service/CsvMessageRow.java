@@ -0,0 +1,61 @@
+package com.support.service;
+
+/**
+ * One message row from a CSV export: the customer's User ID, the message
+ * timestamp as written in the file, and the trimmed message body.
+ */
+final class CsvMessageRow {
+
+    private final String userId;
+    private final String timestamp;
+    private final String body;
+
+    CsvMessageRow(String userId, String timestamp, String body) {
+        this.userId = userId;
+        this.timestamp = timestamp;
+        this.body = body;
+    }
+
+    String getUserId() {
+        return userId;
+    }
+
+    String getTimestamp() {
+        return timestamp;
+    }
+
+    String getBody() {
+        return body;
+    }
+
+    /**
+     * 64-bit key of (User ID, timestamp, body) used to recognise rows that were
+     * already imported. FNV-1a over the three fields, finished with the
+     * MurmurHash3 avalanche step so the key spreads well in a hash table.
+     */
+    long importKey() {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, userId);
+        hash = fnv(hash, timestamp);
+        hash = fnv(hash, body);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long fnv(long hash, String field) {
+        if (field != null) {
+            for (int i = 0; i < field.length(); i++) {
+                hash ^= field.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0x1f;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+}
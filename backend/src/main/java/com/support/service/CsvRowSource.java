@@ -0,0 +1,21 @@
+package com.support.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequential source of message rows for the CSV import. Header rows, short
+ * rows and rows with an empty message body are skipped by the source.
+ */
+interface CsvRowSource extends Closeable {
+
+    /**
+     * Next usable row in file order, or null at end of input
+     */
+    CsvMessageRow next() throws IOException;
+
+    /**
+     * Approximate number of bytes of the input consumed so far, for progress reporting
+     */
+    long bytesRead();
+}
@@ -0,0 +1,390 @@
+package com.support.service;
+
+import com.support.model.Customer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index for substring search over customer name, email and
+ * phone.
+ * <p>
+ * Each customer's lower-cased name and email and digits-only phone are split
+ * into overlapping three-character trigrams, and every trigram keeps a sorted
+ * list of the customers containing it. A query of three or more characters only
+ * looks at customers that contain all of its trigrams (posting lists are
+ * intersected smallest first); those candidates are then checked for the
+ * actual substring. Shorter queries scan the stored fields. Phone numbers match
+ * on digits, so "555-0142" finds "+1 (555) 014-2000".
+ * <p>
+ * Exact field matches rank first, then prefix matches (of a field or a word in
+ * the name), then other substrings; ties are ordered by name. Built from the
+ * database at startup and updated as customers are created; until then
+ * {@link #isReady()} is false and callers fall back to the database.
+ */
+@Service
+public class CustomerSearchIndex {
+
+    private static final int REBUILD_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<UUID, Integer> byId = new HashMap<>();
+    // Trigram (three chars packed into a long) -> customers containing it, ascending
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public CustomerSearchIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Load all existing customers in the background; new customers are indexed meanwhile
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(this::rebuild, "customer-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>(REBUILD_BATCH);
+        // Streamed as MessageSearchIndex.rebuild does, in a read-only transaction so the fetch size applies
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(REBUILD_BATCH);
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status ->
+                    streaming.query("SELECT id, name, email, phone FROM customers", rs -> {
+                        batch.add(new Object[]{
+                                rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3), rs.getString(4)});
+                        if (batch.size() >= REBUILD_BATCH) {
+                            addAll(batch);
+                            batch.clear();
+                        }
+                    }));
+            addAll(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Customer search index rebuild failed, search stays on the database: " + e.getMessage());
+            return;
+        }
+        ready = true;
+        System.out.println("Customer search index built: " + size() + " customers in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index a customer once the current transaction commits (immediately if there is none)
+     */
+    public void addAfterCommit(Customer customer) {
+        UUID id = customer.getId();
+        String name = customer.getName();
+        String email = customer.getEmail();
+        String phone = customer.getPhone();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(id, name, email, phone);
+                }
+            });
+        } else {
+            add(id, name, email, phone);
+        }
+    }
+
+    /**
+     * Index a customer; ignored if it is already indexed
+     */
+    public void add(UUID id, String name, String email, String phone) {
+        lock.writeLock().lock();
+        try {
+            addLocked(id, name, email, phone);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addAll(List<Object[]> rows) {
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                addLocked((UUID) row[0], (String) row[1], (String) row[2], (String) row[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(UUID id, String name, String email, String phone) {
+        if (byId.containsKey(id)) {
+            return;
+        }
+        int doc = entries.size();
+        Entry entry = new Entry(id, lower(name), lower(email), digits(phone));
+        entries.add(entry);
+        byId.put(id, doc);
+
+        Set<Long> keys = new HashSet<>();
+        addTrigrams(entry.name, keys);
+        addTrigrams(entry.email, keys);
+        addTrigrams(entry.phone, keys);
+        for (Long key : keys) {
+            trigrams.computeIfAbsent(key, k -> new Postings()).add(doc);
+        }
+    }
+
+    /**
+     * Best {@code limit} customers whose name, email or phone contains the query
+     */
+    public SearchHits search(String query, int limit) {
+        String text = lower(query.trim());
+        // Phone-like queries (digits and phone punctuation) also match on digits
+        String phoneDigits = isPhoneLike(text) ? digits(text) : "";
+        if (text.isEmpty()) {
+            return new SearchHits(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Match> best = new PriorityQueue<>(Comparator.reverseOrder());
+            long total = 0;
+            for (int doc : candidates(text, phoneDigits)) {
+                Match match = match(doc, text, phoneDigits);
+                if (match == null) continue;
+                total++;
+                if (limit <= 0) continue;
+                if (best.size() < limit) {
+                    best.add(match);
+                } else if (match.compareTo(best.peek()) < 0) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+
+            List<Match> ranked = new ArrayList<>(best);
+            Collections.sort(ranked);
+            List<UUID> ids = new ArrayList<>(ranked.size());
+            for (Match match : ranked) {
+                ids.add(match.entry.id);
+            }
+            return new SearchHits(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Customers that may match: those holding every trigram of the query (or of its
+     * digits), or everyone when the query is too short to have trigrams
+     */
+    private int[] candidates(String text, String phoneDigits) {
+        if (text.length() < 3 || (!phoneDigits.isEmpty() && phoneDigits.length() < 3)) {
+            int[] all = new int[entries.size()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] byText = intersect(text);
+        if (phoneDigits.isEmpty() || phoneDigits.equals(text)) {
+            return byText;
+        }
+        return union(byText, intersect(phoneDigits));
+    }
+
+    private int[] intersect(String text) {
+        Set<Long> keys = new HashSet<>();
+        addTrigrams(text, keys);
+        List<Postings> lists = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            Postings postings = trigrams.get(key);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+        int count = result.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            Postings postings = lists.get(l);
+            int from = 0;
+            int kept = 0;
+            for (int i = 0; i < count && from < postings.size; i++) {
+                int index = Arrays.binarySearch(postings.docs, from, postings.size, result[i]);
+                if (index >= 0) {
+                    result[kept++] = result[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Rank of a customer for the query, or null if no field contains it
+     */
+    private Match match(int doc, String text, String phoneDigits) {
+        Entry entry = entries.get(doc);
+        int rank = Math.min(rank(entry.name, text, true), rank(entry.email, text, false));
+        if (!phoneDigits.isEmpty()) {
+            rank = Math.min(rank, rank(entry.phone, phoneDigits, false));
+        }
+        return rank == Integer.MAX_VALUE ? null : new Match(entry, rank);
+    }
+
+    /**
+     * 0 = equal, 1 = prefix (of the field or, for names, of a word), 2 = substring,
+     * MAX_VALUE = no match
+     */
+    private static int rank(String field, String text, boolean words) {
+        int index = field.indexOf(text);
+        if (index < 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (index == 0) {
+            return field.length() == text.length() ? 0 : 1;
+        }
+        if (words && field.contains(" " + text)) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private static void addTrigrams(String text, Set<Long> keys) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            keys.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+
+    private static boolean isPhoneLike(String text) {
+        boolean digit = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) {
+                digit = true;
+            } else if (" +-().".indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                digits.append(value.charAt(i));
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Indexed fields of one customer, already normalized
+     */
+    private static class Entry {
+        private final UUID id;
+        private final String name;
+        private final String email;
+        private final String phone;
+
+        Entry(UUID id, String name, String email, String phone) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+            this.phone = phone;
+        }
+    }
+
+    private static class Match implements Comparable<Match> {
+        private final Entry entry;
+        private final int rank;
+
+        Match(Entry entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (rank != other.rank) {
+                return Integer.compare(rank, other.rank);
+            }
+            int byName = entry.name.compareTo(other.entry.name);
+            return byName != 0 ? byName : entry.id.compareTo(other.entry.id);
+        }
+    }
+
+    /**
+     * Customers containing a trigram, ascending
+     */
+    private static class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
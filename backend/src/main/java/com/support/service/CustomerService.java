@@ -3,11 +3,17 @@ package com.support.service;
 import com.support.dto.CustomerDTO;
 import com.support.model.Customer;
 import com.support.repository.CustomerRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,10 +23,22 @@ import java.util.UUID;
 @Service
 public class CustomerService {
 
+    // Upper bound for the limit of a customer search
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final CustomerRepository customerRepository;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final SearchResultCache searchResultCache;
+    private final OpenConversationQueue openConversationQueue;
 
-    public CustomerService(CustomerRepository customerRepository) {
+    public CustomerService(CustomerRepository customerRepository,
+                           CustomerSearchIndex customerSearchIndex,
+                           SearchResultCache searchResultCache,
+                           OpenConversationQueue openConversationQueue) {
         this.customerRepository = customerRepository;
+        this.customerSearchIndex = customerSearchIndex;
+        this.searchResultCache = searchResultCache;
+        this.openConversationQueue = openConversationQueue;
     }
 
     /**
@@ -47,18 +65,38 @@ public class CustomerService {
     }
 
     /**
-     * Search customers by name or email
+     * Search customers by name, email or phone; the best {@code limit} matches
+     * (at most 100) and the total number of matches
      */
-    public List<CustomerDTO> searchCustomers(String query) {
+    public Page<CustomerDTO> searchCustomers(String query, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS);
+        Pageable pageable = PageRequest.of(0, size);
         if (query == null || query.trim().isEmpty()) {
-            return new ArrayList<>();
+            return Page.empty(pageable);
         }
-        List<Customer> customers = customerRepository.searchCustomers(query.trim());
+
         List<CustomerDTO> result = new ArrayList<>();
-        for (Customer customer : customers) {
-            result.add(CustomerDTO.fromEntity(customer));
+        if (!customerSearchIndex.isReady()) {
+            // Index still loading: scan in the database
+            List<Customer> customers = customerRepository.searchCustomers(query.trim());
+            for (Customer customer : customers.subList(0, Math.min(size, customers.size()))) {
+                result.add(CustomerDTO.fromEntity(customer));
+            }
+            return new PageImpl<>(result, pageable, customers.size());
         }
-        return result;
+
+        SearchHits hits = customerSearchIndex.search(query, size);
+        Map<UUID, Customer> customers = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(hits.getIds())) {
+            customers.put(customer.getId(), customer);
+        }
+        for (UUID id : hits.getIds()) {
+            Customer customer = customers.get(id);
+            if (customer != null) {
+                result.add(CustomerDTO.fromEntity(customer));
+            }
+        }
+        return new PageImpl<>(result, pageable, hits.getTotal());
     }
 
     /**
@@ -91,7 +129,10 @@ public class CustomerService {
         customer.setLoanStatus("N/A");
         customer.setTotalConversations(0); // Initialize to 0
 
-        return customerRepository.save(customer);
+        customer = customerRepository.save(customer);
+        customerSearchIndex.addAfterCommit(customer);
+        searchResultCache.invalidateCustomerAfterCommit(customer.getName(), customer.getEmail(), customer.getPhone());
+        return customer;
     }
 
     /**
@@ -108,6 +149,7 @@ public class CustomerService {
             }
             customer.setTotalConversations(customer.getTotalConversations() + 1);
             customerRepository.save(customer);
+            openConversationQueue.updateCustomerAfterCommit(customer);
         }
     }
 }
@@ -0,0 +1,164 @@
+package com.support.service;
+
+import com.support.model.Agent;
+import com.support.model.Agent.AgentStatus;
+import com.support.model.Conversation;
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Conversation.UrgencyLevel;
+import com.support.repository.AgentRepository;
+import com.support.repository.ConversationRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Dashboard counters (active conversations, urgent conversations, online
+ * agents) kept in memory, so stats reads do not run COUNT queries.
+ * <p>
+ * Write paths report each transition with the state it started from; the
+ * counters are adjusted once the transaction commits. Writes that cannot say
+ * what they changed (batch SQL updates, seeding) and concurrent updates of the
+ * same row can leave the counters off, so they are recounted from the database
+ * at startup, on a fixed delay and after imports. A recount keeps transitions
+ * reported while it runs, but one whose transaction commits before the COUNT
+ * and whose after-commit adjustment lands after the recount started is counted
+ * twice; such in-flight transitions can leave a counter off until the next
+ * recount. Until the first recount {@link #isReady()} is false and callers
+ * count in the database.
+ */
+@Service
+public class DashboardCounters {
+
+    private final ConversationRepository conversationRepository;
+    private final AgentRepository agentRepository;
+
+    private final LongAdder activeConversations = new LongAdder();
+    private final LongAdder urgentConversations = new LongAdder();
+    private final LongAdder onlineAgents = new LongAdder();
+
+    private volatile boolean ready;
+
+    public DashboardCounters(ConversationRepository conversationRepository, AgentRepository agentRepository) {
+        this.conversationRepository = conversationRepository;
+        this.agentRepository = agentRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getActiveConversations() {
+        return activeConversations.sum();
+    }
+
+    public long getUrgentConversations() {
+        return urgentConversations.sum();
+    }
+
+    public long getOnlineAgents() {
+        return onlineAgents.sum();
+    }
+
+    /**
+     * Count a conversation change once the current transaction commits (immediately
+     * if there is none). The new state is read from the conversation now.
+     *
+     * @param fromStatus status before the change, null for a new conversation
+     * @param fromLevel  urgency level before the change, null for a new conversation
+     */
+    public void conversationChangedAfterCommit(ConversationStatus fromStatus, UrgencyLevel fromLevel,
+                                               Conversation conversation) {
+        long active = (isActive(conversation.getStatus()) ? 1 : 0) - (isActive(fromStatus) ? 1 : 0);
+        long urgent = (isUrgent(conversation.getUrgencyLevel()) ? 1 : 0) - (isUrgent(fromLevel) ? 1 : 0);
+        if (active != 0 || urgent != 0) {
+            afterCommit(() -> {
+                activeConversations.add(active);
+                urgentConversations.add(urgent);
+            });
+        }
+    }
+
+    /**
+     * Count an agent status change once the current transaction commits
+     *
+     * @param fromStatus status before the change, null for a new agent
+     */
+    public void agentChangedAfterCommit(AgentStatus fromStatus, Agent agent) {
+        long online = (agent.getStatus() == AgentStatus.ONLINE ? 1 : 0) - (fromStatus == AgentStatus.ONLINE ? 1 : 0);
+        if (online != 0) {
+            afterCommit(() -> onlineAgents.add(online));
+        }
+    }
+
+    /**
+     * Same statuses as ConversationRepository.countActiveConversations
+     */
+    private static boolean isActive(ConversationStatus status) {
+        return status == ConversationStatus.OPEN || status == ConversationStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Same levels as ConversationRepository.countUrgentConversations
+     */
+    private static boolean isUrgent(UrgencyLevel level) {
+        return level == UrgencyLevel.HIGH || level == UrgencyLevel.CRITICAL;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Recount all counters from the database, correcting any drift
+     */
+    @Scheduled(initialDelayString = "${app.dashboard.reconcile-interval-ms:60000}",
+            fixedDelayString = "${app.dashboard.reconcile-interval-ms:60000}")
+    public synchronized void reconcile() {
+        try {
+            long drift = reconcile(activeConversations, conversationRepository::countActiveConversations)
+                    + reconcile(urgentConversations, conversationRepository::countUrgentConversations)
+                    + reconcile(onlineAgents, agentRepository::countOnlineAgents);
+            if (drift != 0 && ready) {
+                System.out.println("Dashboard counters corrected by " + drift + " in total");
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            System.err.println("Dashboard counter reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Set the counter to the database count plus whatever was added while counting
+     *
+     * @return how far off the counter was
+     */
+    private static long reconcile(LongAdder counter, LongSupplier count) {
+        long before = counter.sum();
+        long actual = count.getAsLong();
+        // Relative, so transitions added since "before" are kept on top of the count (a transition
+        // already committed when counting but added after "before" is counted twice until the next recount)
+        long correction = actual - before;
+        counter.add(correction);
+        return Math.abs(correction);
+    }
+}
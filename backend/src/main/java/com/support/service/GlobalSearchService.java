@@ -0,0 +1,133 @@
+package com.support.service;
+
+import com.support.dto.CustomerDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Global search across messages and customers.
+ * <p>
+ * Each source is queried on a small bounded pool at the same time, so the
+ * response takes as long as the slowest source rather than the sum. All sources
+ * share one deadline; a source that misses it (or cannot be scheduled because
+ * the pool is saturated) is left out, and the response is marked partial.
+ */
+@Service
+public class GlobalSearchService {
+
+    private final MessageService messageService;
+    private final CustomerService customerService;
+
+    // Worker threads for source queries
+    @Value("${app.search.threads:8}")
+    private int threads;
+
+    // Source queries waiting for a worker before new ones are turned away
+    @Value("${app.search.queue-size:100}")
+    private int queueSize;
+
+    // Time all sources get to answer
+    @Value("${app.search.source-timeout-ms:500}")
+    private long sourceTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    public GlobalSearchService(MessageService messageService, CustomerService customerService) {
+        this.messageService = messageService;
+        this.customerService = customerService;
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "global-search-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Search messages and customers concurrently. The result holds messages,
+     * messagesTotal, customers and customersTotal, plus partial and timedOut
+     * (the sources left out).
+     *
+     * @param snippets return messages as excerpts around the matches instead of full content
+     */
+    public Map<String, Object> search(String query, Pageable pageable, boolean snippets) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sourceTimeoutMs);
+        Future<Page<?>> messages = submit(() -> snippets
+                ? messageService.searchMessageSnippets(query, pageable)
+                : messageService.searchMessages(query, pageable));
+        Future<Page<CustomerDTO>> customers = submit(() -> customerService.searchCustomers(query, pageable.getPageSize()));
+
+        Map<String, Object> results = new HashMap<>();
+        List<String> timedOut = new ArrayList<>();
+        put(results, "messages", await(messages, deadline, "messages", timedOut));
+        put(results, "customers", await(customers, deadline, "customers", timedOut));
+        results.put("partial", !timedOut.isEmpty());
+        results.put("timedOut", timedOut);
+        return results;
+    }
+
+    private <T> Future<T> submit(Supplier<T> source) {
+        try {
+            return executor.submit(source::get);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Result of a source, or null (recorded in timedOut) if it missed the deadline
+     */
+    private <T> T await(Future<T> future, long deadline, String source, List<String> timedOut) {
+        if (future == null) {
+            System.out.println("Global search: no worker free for " + source);
+            timedOut.add(source);
+            return null;
+        }
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            System.out.println("Global search: " + source + " timed out after " + sourceTimeoutMs + " ms");
+            timedOut.add(source);
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            timedOut.add(source);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void put(Map<String, Object> results, String source, Page<?> page) {
+        results.put(source, page != null ? page.getContent() : List.of());
+        results.put(source + "Total", page != null ? page.getTotalElements() : 0L);
+    }
+}
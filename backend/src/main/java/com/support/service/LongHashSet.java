@@ -0,0 +1,86 @@
+package com.support.service;
+
+/**
+ * Open-addressing set of primitive longs with linear probing. Uses about
+ * 12-24 bytes per key, against roughly 50 for a HashSet&lt;Long&gt;, which matters
+ * when holding the keys of every imported CSV row. Not thread-safe.
+ */
+final class LongHashSet {
+
+    // Marks a free slot; the key 0 itself is tracked separately
+    private static final long FREE = 0L;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 3 / 2) - 1) << 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add a key; returns false if it was already present
+     */
+    boolean add(long key) {
+        if (key == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        while (table[slot] != FREE) {
+            if (table[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        if (++size * 3L > table.length * 2L) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == FREE) {
+            return containsFree;
+        }
+        int slot = slot(key);
+        while (table[slot] != FREE) {
+            if (table[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for (long key : old) {
+            if (key != FREE) {
+                int slot = slot(key);
+                while (table[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.support.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Row source for very large exports that memory-maps the file instead of
+ * decoding it through a Reader.
+ * <p>
+ * The file is cut into record-aligned segments (a quick pass that only tracks
+ * quote state, so embedded newlines never split a record). Segments are mapped
+ * and parsed in parallel straight from the byte buffers, a few segments ahead
+ * of the consumer, and rows are handed out in file order. Strings are only
+ * created for the User ID, timestamp and message body columns.
+ * <p>
+ * Field rules follow OpenCSV's defaults: comma separator, double-quote quoting
+ * with doubled quotes, backslash escaping of quotes, backslashes and commas, and line
+ * breaks inside quoted fields kept as "\n".
+ */
+class MappedCsvRowSource implements CsvRowSource {
+
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte ESCAPE = '\\';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    // Boundary scan maps the file in windows of this size
+    private static final long SCAN_WINDOW = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ExecutorService parsePool;
+    private final Deque<long[]> pendingSegments;
+    private final Deque<Future<List<CsvMessageRow>>> parsing = new ArrayDeque<>();
+    // Bounds of the segments in parsing, in the same order
+    private final Deque<long[]> parsingSegments = new ArrayDeque<>();
+    private final int lookahead;
+    private Iterator<CsvMessageRow> current = Collections.emptyIterator();
+    private long bytesRead;
+
+    MappedCsvRowSource(Path path, long segmentSize, int parseThreads) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.pendingSegments = new ArrayDeque<>(findSegments(channel, segmentSize));
+        this.lookahead = Math.max(1, parseThreads) * 2;
+        this.parsePool = Executors.newFixedThreadPool(Math.max(1, parseThreads), r -> {
+            Thread thread = new Thread(r, "csv-parse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fillLookahead();
+    }
+
+    @Override
+    public CsvMessageRow next() throws IOException {
+        while (!current.hasNext()) {
+            Future<List<CsvMessageRow>> next = parsing.poll();
+            if (next == null) {
+                bytesRead = channel.size();
+                return null;
+            }
+            bytesRead = parsingSegments.poll()[0];
+            try {
+                current = next.get().iterator();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while parsing CSV");
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to parse CSV segment: " + e.getCause().getMessage(), e.getCause());
+            }
+            fillLookahead();
+        }
+        return current.next();
+    }
+
+    @Override
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parsePool.shutdownNow();
+        channel.close();
+    }
+
+    private void fillLookahead() {
+        while (parsing.size() < lookahead && !pendingSegments.isEmpty()) {
+            long[] segment = pendingSegments.poll();
+            parsingSegments.add(segment);
+            parsing.add(parsePool.submit(() -> parseSegment(segment[0], segment[1], segment[0] == 0)));
+        }
+    }
+
+    private List<CsvMessageRow> parseSegment(long start, long end, boolean skipHeader) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        List<CsvMessageRow> rows = new ArrayList<>();
+        new SegmentParser(buffer).parse(rows, skipHeader);
+        return rows;
+    }
+
+    /**
+     * Split the file into segments of roughly {@code segmentSize} bytes that each end
+     * on a record boundary. Tracks only the quote/escape state the record parser uses,
+     * so this is a cheap byte scan with no decoding.
+     */
+    static List<long[]> findSegments(FileChannel channel, long segmentSize) throws IOException {
+        long size = channel.size();
+        List<long[]> segments = new ArrayList<>();
+        long segmentStart = 0;
+        boolean inQuotes = false;
+        boolean inField = false;
+        boolean skipNext = false;
+
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            int windowLength = (int) Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            for (int i = 0; i < windowLength; i++) {
+                if (skipNext) {
+                    skipNext = false;
+                    continue;
+                }
+                byte b = window.get(i);
+                if (b == ESCAPE || b == QUOTE) {
+                    byte next = i + 1 < windowLength ? window.get(i + 1) : peek(channel, windowStart + i + 1);
+                    if (b == ESCAPE) {
+                        inField = true;
+                        skipNext = isEscapable(next);
+                    } else {
+                        if (!(inQuotes || inField) || next != QUOTE) {
+                            inQuotes = !inQuotes;
+                        } else {
+                            skipNext = true;
+                        }
+                        inField = !inField;
+                    }
+                } else if (b == SEPARATOR && !inQuotes) {
+                    inField = false;
+                } else if ((b == LF || b == CR) && !inQuotes) {
+                    inField = false;
+                    long recordEnd = windowStart + i + 1;
+                    if (b == LF && recordEnd - segmentStart >= segmentSize) {
+                        segments.add(new long[]{segmentStart, recordEnd});
+                        segmentStart = recordEnd;
+                    }
+                } else if (b != LF && b != CR) {
+                    inField = true;
+                }
+            }
+        }
+        if (segmentStart < size) {
+            segments.add(new long[]{segmentStart, size});
+        }
+        return segments;
+    }
+
+    private static boolean isEscapable(byte b) {
+        return b == QUOTE || b == ESCAPE || b == SEPARATOR;
+    }
+
+    private static byte peek(FileChannel channel, long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        return channel.read(one, position) == 1 ? one.get(0) : 0;
+    }
+
+    /**
+     * Parses records of one mapped segment. Only the first three columns are
+     * decoded; later columns are only scanned.
+     */
+    static final class SegmentParser {
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int pos;
+
+        // Decoded bytes of the current User ID, timestamp and message body fields
+        private final byte[][] fields = {new byte[32], new byte[32], new byte[1024]};
+        private final int[] lengths = new int[3];
+
+        SegmentParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+        }
+
+        void parse(List<CsvMessageRow> rows, boolean skipHeader) {
+            if (skipHeader && pos < limit) {
+                parseRecord();
+            }
+            while (pos < limit) {
+                int columns = parseRecord();
+                if (columns < 3) continue;
+
+                String body = trimmed(2);
+                if (body.isEmpty()) continue;
+
+                rows.add(new CsvMessageRow(trimmed(0), trimmed(1), body));
+            }
+        }
+
+        /**
+         * Decode a field with the same trimming as String.trim(); bytes <= ' ' are
+         * single-byte in UTF-8, so trimming the bytes is equivalent
+         */
+        private String trimmed(int column) {
+            byte[] field = fields[column];
+            int start = 0;
+            int end = lengths[column];
+            while (start < end && (field[start] & 0xff) <= ' ') start++;
+            while (end > start && (field[end - 1] & 0xff) <= ' ') end--;
+            return start == end ? "" : new String(field, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parse one record starting at {@code pos}; returns the number of columns
+         */
+        int parseRecord() {
+            lengths[0] = 0;
+            lengths[1] = 0;
+            lengths[2] = 0;
+            int column = 0;
+            int lineStart = pos;
+            boolean inQuotes = false;
+            boolean inField = false;
+
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+
+                if (b == ESCAPE) {
+                    // The escape character itself is dropped, escapable or not
+                    inField = true;
+                    if (pos + 1 < limit && isEscapable(buffer.get(pos + 1))) {
+                        append(column, buffer.get(pos + 1));
+                        pos += 2;
+                    } else {
+                        pos++;
+                    }
+                    continue;
+                }
+
+                if (b == QUOTE) {
+                    if ((inQuotes || inField) && pos + 1 < limit && buffer.get(pos + 1) == QUOTE) {
+                        append(column, QUOTE);
+                        inField = !inField;
+                        pos += 2;
+                        continue;
+                    }
+                    inQuotes = !inQuotes;
+                    // A quote in the middle of unquoted text is kept literally, as OpenCSV does
+                    if (charsBetween(lineStart, pos) > 2 && buffer.get(pos - 1) != SEPARATOR
+                            && pos + 1 < limit && !isLineEnd(buffer.get(pos + 1))
+                            && buffer.get(pos + 1) != SEPARATOR) {
+                        if (isAllWhitespace(column)) {
+                            resetField(column);
+                        } else {
+                            append(column, QUOTE);
+                        }
+                    }
+                    inField = !inField;
+                    pos++;
+                    continue;
+                }
+
+                if (b == SEPARATOR && !inQuotes) {
+                    column++;
+                    inField = false;
+                    pos++;
+                    continue;
+                }
+
+                if (isLineEnd(b)) {
+                    // CRLF and lone CR count as one line break, like BufferedReader.readLine
+                    int next = pos + 1;
+                    if (b == CR && next < limit && buffer.get(next) == LF) {
+                        next++;
+                    }
+                    pos = next;
+                    if (!inQuotes) {
+                        return column + 1;
+                    }
+                    append(column, LF);
+                    lineStart = pos;
+                    continue;
+                }
+
+                append(column, b);
+                inField = true;
+                pos++;
+            }
+            return column + 1;
+        }
+
+        /**
+         * Number of UTF-16 chars encoded in [from, to), counted up to 3 since callers
+         * only compare against small offsets
+         */
+        private int charsBetween(int from, int to) {
+            int chars = 0;
+            for (int i = from; i < to && chars < 3; i++) {
+                int b = buffer.get(i) & 0xff;
+                if ((b & 0xc0) != 0x80) {
+                    chars += b >= 0xf0 ? 2 : 1;
+                }
+            }
+            return chars;
+        }
+
+        private static boolean isLineEnd(byte b) {
+            return b == LF || b == CR;
+        }
+
+        private void append(int column, byte b) {
+            if (column < 3) {
+                if (lengths[column] == fields[column].length) {
+                    fields[column] = Arrays.copyOf(fields[column], fields[column].length * 2);
+                }
+                fields[column][lengths[column]++] = b;
+            }
+        }
+
+        private boolean isAllWhitespace(int column) {
+            if (column >= 3 || lengths[column] == 0) {
+                return false;
+            }
+            for (int i = 0; i < lengths[column]; i++) {
+                if (!Character.isWhitespace(fields[column][i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void resetField(int column) {
+            if (column < 3) {
+                lengths[column] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package com.support.service;
+
+import com.support.model.Message;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over message content, so search does not scan the
+ * messages table.
+ * <p>
+ * Content is split into lower-cased letter/digit tokens. Every token keeps a
+ * posting list of (document, term frequency) sorted by document number, and
+ * documents are numbered in the order they were indexed (oldest first). A query matches
+ * messages containing all of its tokens, the last one as a prefix while the
+ * user is still typing it, and results are ranked by BM25 with newer messages
+ * first on ties.
+ * <p>
+ * The index is rebuilt from the database at startup and then kept current by
+ * the write paths, which add messages once their transaction commits. Messages
+ * are never edited or deleted, so the index is append-only. Until the rebuild
+ * finishes {@link #isReady()} is false and callers fall back to the database.
+ */
+@Service
+public class MessageSearchIndex {
+
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Most frequent terms a prefix expands to
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private static final int REBUILD_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Term dictionary, sorted so prefixes are a range scan
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // Per-document data, indexed by document number
+    private long[] idHigh = new long[1024];
+    private long[] idLow = new long[1024];
+    private int[] lengths = new int[1024];
+    private int documents;
+    private long totalLength;
+
+    // Open-addressing table of document numbers keyed by message id (-1 = free)
+    private int[] byId = newTable(2048);
+
+    private volatile boolean ready;
+
+    public MessageSearchIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Load all existing messages in the background; live writes are indexed meanwhile
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(this::rebuild, "message-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>(REBUILD_BATCH);
+        // Own template so the fetch size (stream instead of buffering every row) stays local. The scan
+        // runs in a read-only transaction: the PostgreSQL driver ignores the fetch size in autocommit mode
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(REBUILD_BATCH);
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status ->
+                    streaming.query("SELECT id, content FROM messages ORDER BY created_at", rs -> {
+                        batch.add(new Object[]{rs.getObject(1, UUID.class), rs.getString(2)});
+                        if (batch.size() >= REBUILD_BATCH) {
+                            addAll(batch);
+                            batch.clear();
+                        }
+                    }));
+            addAll(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Message search index rebuild failed, search stays on the database: " + e.getMessage());
+            return;
+        }
+        ready = true;
+        System.out.println("Message search index built: " + size() + " messages in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index a message once the current transaction commits (immediately if there is none)
+     */
+    public void addAfterCommit(Message message) {
+        UUID id = message.getId();
+        String content = message.getContent();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(id, content);
+                }
+            });
+        } else {
+            add(id, content);
+        }
+    }
+
+    /**
+     * Index a message; ignored if it is already indexed
+     */
+    public void add(UUID id, String content) {
+        lock.writeLock().lock();
+        try {
+            addLocked(id, content);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addAll(List<Object[]> rows) {
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                addLocked((UUID) row[0], (String) row[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(UUID id, String content) {
+        if (findDocument(id) >= 0) {
+            return;
+        }
+        int doc = documents;
+        if (doc == idHigh.length) {
+            int capacity = doc * 2;
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        idHigh[doc] = id.getMostSignificantBits();
+        idLow[doc] = id.getLeastSignificantBits();
+
+        List<String> tokens = tokenize(content);
+        lengths[doc] = tokens.size();
+        totalLength += tokens.size();
+        documents++;
+        insertDocument(doc);
+
+        // Term frequencies for this document, then one posting per distinct term
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(doc, entry.getValue());
+        }
+    }
+
+    /**
+     * Find messages matching all query tokens, ranked by relevance
+     *
+     * @param offset number of ranked hits to skip
+     * @param limit  maximum number of ids to return
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        return search(query, offset, limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Next {@code limit} ranked hits after the hit whose rank key is {@code afterKey}
+     * (see {@link SearchHits#getLastKey()}); the total counts the hits ranked after
+     * it. Costs the same however deep the page; ranks can shift slightly between
+     * pages as new messages change term statistics.
+     */
+    public SearchHits searchAfter(String query, long afterKey, int limit) {
+        return search(query, 0, limit, afterKey);
+    }
+
+    private SearchHits search(String query, int offset, int limit, long beforeKey) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new SearchHits(Collections.emptyList(), 0);
+        }
+        boolean lastIsPrefix = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            // One group of terms per query token; any of a group's terms satisfies the token
+            List<Postings[]> groups = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Postings[] group = i == tokens.size() - 1 && lastIsPrefix
+                        ? expandPrefix(tokens.get(i))
+                        : exact(tokens.get(i));
+                if (group.length == 0) {
+                    return new SearchHits(Collections.emptyList(), 0);
+                }
+                groups.add(group);
+            }
+            // Start from the most selective token so the candidate set is small
+            groups.sort(Comparator.comparingLong(MessageSearchIndex::postingCount));
+
+            float averageLength = documents == 0 ? 1 : (float) totalLength / documents;
+            Candidates candidates = candidatesOf(groups.get(0), averageLength);
+            for (int g = 1; g < groups.size(); g++) {
+                candidates.retain(groups.get(g), averageLength);
+            }
+            int count = candidates.count;
+            int[] docs = candidates.docs;
+            float[] scores = candidates.scores;
+
+            return topHits(docs, scores, count, offset, limit, beforeKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Postings[] exact(String token) {
+        Postings postings = terms.get(token);
+        return postings == null ? new Postings[0] : new Postings[]{postings};
+    }
+
+    private Postings[] expandPrefix(String prefix) {
+        SortedMap<String, Postings> range = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() <= MAX_PREFIX_TERMS) {
+            return range.values().toArray(new Postings[0]);
+        }
+        PriorityQueue<Postings> mostFrequent = new PriorityQueue<>(Comparator.comparingInt(p -> p.size));
+        for (Postings postings : range.values()) {
+            mostFrequent.add(postings);
+            if (mostFrequent.size() > MAX_PREFIX_TERMS) {
+                mostFrequent.poll();
+            }
+        }
+        return mostFrequent.toArray(new Postings[0]);
+    }
+
+    private static long postingCount(Postings[] group) {
+        long count = 0;
+        for (Postings postings : group) {
+            count += postings.size;
+        }
+        return count;
+    }
+
+    /**
+     * Documents in any of the group's posting lists, ascending, each with the best
+     * score among the group's terms
+     */
+    private Candidates candidatesOf(Postings[] group, float averageLength) {
+        Candidates candidates = new Candidates((int) postingCount(group));
+        if (group.length == 1) {
+            Postings postings = group[0];
+            float idf = idf(postings);
+            for (int i = 0; i < postings.size; i++) {
+                candidates.add(postings.docs[i], bm25(idf, postings.tfs[i], postings.docs[i], averageLength));
+            }
+            return candidates;
+        }
+        // Document in the high half and score in the low half: sorting groups each
+        // document's entries together with its best score last
+        long[] entries = new long[candidates.docs.length];
+        int n = 0;
+        for (Postings postings : group) {
+            float idf = idf(postings);
+            for (int i = 0; i < postings.size; i++) {
+                float score = bm25(idf, postings.tfs[i], postings.docs[i], averageLength);
+                entries[n++] = ((long) postings.docs[i] << 32) | Float.floatToIntBits(score);
+            }
+        }
+        Arrays.sort(entries, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i + 1 == n || (entries[i] >>> 32) != (entries[i + 1] >>> 32)) {
+                candidates.add((int) (entries[i] >>> 32), Float.intBitsToFloat((int) entries[i]));
+            }
+        }
+        return candidates;
+    }
+
+    private float idf(Postings postings) {
+        return (float) Math.log(1 + (documents - postings.size + 0.5) / (postings.size + 0.5));
+    }
+
+    private float bm25(float idf, byte frequency, int doc, float averageLength) {
+        float tf = frequency & 0xff;
+        float norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+        return idf * tf * (K1 + 1) / (tf + norm);
+    }
+
+    /**
+     * Matching documents (ascending) and their accumulated scores
+     */
+    private class Candidates {
+        private final int[] docs;
+        private final float[] scores;
+        private int count;
+
+        Candidates(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int doc, float score) {
+            docs[count] = doc;
+            scores[count] = score;
+            count++;
+        }
+
+        /**
+         * Keep only documents containing one of the group's terms, adding the best
+         * term's score. Candidates are ascending, so each posting list is searched
+         * from where the previous lookup stopped.
+         */
+        void retain(Postings[] group, float averageLength) {
+            int[] from = new int[group.length];
+            float[] idfs = new float[group.length];
+            for (int t = 0; t < group.length; t++) {
+                idfs[t] = idf(group[t]);
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int doc = docs[i];
+                float best = -1;
+                for (int t = 0; t < group.length; t++) {
+                    Postings postings = group[t];
+                    if (from[t] >= postings.size) continue;
+                    int index = Arrays.binarySearch(postings.docs, from[t], postings.size, doc);
+                    if (index >= 0) {
+                        best = Math.max(best, bm25(idfs[t], postings.tfs[index], doc, averageLength));
+                        from[t] = index + 1;
+                    } else {
+                        from[t] = -index - 1;
+                    }
+                }
+                if (best >= 0) {
+                    docs[kept] = doc;
+                    scores[kept] = scores[i] + best;
+                    kept++;
+                }
+            }
+            count = kept;
+        }
+    }
+
+    /**
+     * Hits [offset, offset + limit) by score, newest first on ties, among those ranked
+     * below {@code beforeKey}. Keeps only the best offset + limit hits in a heap
+     * instead of sorting every match.
+     */
+    private SearchHits topHits(int[] docs, float[] scores, int count, int offset, int limit, long beforeKey) {
+        int wanted = (int) Math.min((long) offset + limit, count);
+        if (wanted <= offset) {
+            return new SearchHits(Collections.emptyList(), count);
+        }
+        // Score and document number packed so that a larger key ranks higher
+        // (non-negative float bits order like the floats)
+        long[] heap = new long[wanted];
+        int heapSize = 0;
+        int eligible = 0;
+        for (int i = 0; i < count; i++) {
+            long key = ((long) Float.floatToIntBits(scores[i]) << 32) | docs[i];
+            if (key >= beforeKey) {
+                continue;
+            }
+            eligible++;
+            if (heapSize < wanted) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+
+        List<UUID> ids = new ArrayList<>(wanted - offset);
+        long lastKey = -1;
+        for (int i = heapSize - 1 - offset; i >= 0; i--) {
+            int doc = (int) heap[i];
+            ids.add(new UUID(idHigh[doc], idLow[doc]));
+            lastKey = heap[i];
+        }
+        return new SearchHits(ids, eligible, lastKey);
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= heap[i]) break;
+            long tmp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) smallest = left;
+            if (right < size && heap[right] < heap[smallest]) smallest = right;
+            if (smallest == i) break;
+            long tmp = heap[smallest];
+            heap[smallest] = heap[i];
+            heap[i] = tmp;
+            i = smallest;
+        }
+    }
+
+    /**
+     * Lower-cased runs of letters and digits
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private int findDocument(UUID id) {
+        int mask = byId.length - 1;
+        int slot = hash(id.getMostSignificantBits(), id.getLeastSignificantBits()) & mask;
+        while (byId[slot] >= 0) {
+            int doc = byId[slot];
+            if (idHigh[doc] == id.getMostSignificantBits() && idLow[doc] == id.getLeastSignificantBits()) {
+                return doc;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertDocument(int doc) {
+        if (documents * 3L > byId.length * 2L) {
+            int[] old = byId;
+            byId = newTable(old.length * 2);
+            for (int existing : old) {
+                if (existing >= 0) {
+                    place(existing);
+                }
+            }
+        }
+        place(doc);
+    }
+
+    private void place(int doc) {
+        int mask = byId.length - 1;
+        int slot = hash(idHigh[doc], idLow[doc]) & mask;
+        while (byId[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        byId[slot] = doc;
+    }
+
+    private static int hash(long high, long low) {
+        long h = high ^ low;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    /**
+     * Documents containing a term, ascending, with the term's frequency in each
+     * (capped at 255)
+     */
+    private static class Postings {
+        private int[] docs = new int[4];
+        private byte[] tfs = new byte[4];
+        private int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = (byte) Math.min(frequency, 255);
+            size++;
+        }
+    }
+}
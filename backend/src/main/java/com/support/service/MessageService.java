@@ -1,24 +1,36 @@
 package com.support.service;
 
+import com.support.dto.CursorPage;
 import com.support.dto.MessageDTO;
+import com.support.dto.MessageSnippetDTO;
+import com.support.dto.MessageWindow;
 import com.support.dto.request.CreateMessageRequest;
 import com.support.dto.request.ReplyMessageRequest;
 import com.support.model.*;
 import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Conversation.UrgencyLevel;
 import com.support.model.Message.SenderType;
 import com.support.repository.CannedMessageRepository;
 import com.support.repository.ConversationRepository;
 import com.support.repository.MessageRepository;
 import com.support.service.UrgencyDetectionService.UrgencyResult;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -27,56 +39,251 @@ import java.util.UUID;
 @Service
 public class MessageService {
 
+    // Largest page of a cursor search
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    // First part of a search cursor: index rank key, or database (createdAt, id)
+    private static final String RELEVANCE_CURSOR = "r";
+    private static final String TIME_CURSOR = "t";
+
     private final MessageRepository messageRepository;
     private final ConversationRepository conversationRepository;
     private final CannedMessageRepository cannedMessageRepository;
     private final CustomerService customerService;
     private final AgentService agentService;
     private final UrgencyDetectionService urgencyDetectionService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final CannedMessageAutocomplete cannedMessageAutocomplete;
+    private final SearchResultCache searchResultCache;
+    private final OpenConversationQueue openConversationQueue;
+    private final DashboardCounters dashboardCounters;
+    private final ConversationHeaderBuffer conversationHeaderBuffer;
 
     public MessageService(MessageRepository messageRepository,
                          ConversationRepository conversationRepository,
                          CannedMessageRepository cannedMessageRepository,
                          CustomerService customerService,
                          AgentService agentService,
-                         UrgencyDetectionService urgencyDetectionService) {
+                         UrgencyDetectionService urgencyDetectionService,
+                         MessageSearchIndex messageSearchIndex,
+                         CannedMessageAutocomplete cannedMessageAutocomplete,
+                         SearchResultCache searchResultCache,
+                         OpenConversationQueue openConversationQueue,
+                         DashboardCounters dashboardCounters,
+                         ConversationHeaderBuffer conversationHeaderBuffer) {
         this.messageRepository = messageRepository;
         this.conversationRepository = conversationRepository;
         this.cannedMessageRepository = cannedMessageRepository;
         this.customerService = customerService;
         this.agentService = agentService;
         this.urgencyDetectionService = urgencyDetectionService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.cannedMessageAutocomplete = cannedMessageAutocomplete;
+        this.searchResultCache = searchResultCache;
+        this.openConversationQueue = openConversationQueue;
+        this.dashboardCounters = dashboardCounters;
+        this.conversationHeaderBuffer = conversationHeaderBuffer;
     }
 
     /**
      * Get all messages for a conversation
      */
     public List<MessageDTO> getMessagesByConversation(UUID conversationId) {
-        List<Message> messages = messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
-        List<MessageDTO> result = new ArrayList<>();
-        for (Message msg : messages) {
-            result.add(MessageDTO.fromEntity(msg));
+        return toDtos(messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId));
+    }
+
+    /**
+     * Get a window of a conversation's messages, oldest first: the latest
+     * {@code size}, or the {@code size} just before or just after a cursor from an
+     * earlier window. Each window is one indexed range read however long the
+     * conversation is.
+     *
+     * @throws IllegalArgumentException if both cursors are given or one is invalid
+     */
+    public MessageWindow getMessageWindow(UUID conversationId, String before, String after, int size) {
+        boolean hasBefore = before != null && !before.isEmpty();
+        boolean hasAfter = after != null && !after.isEmpty();
+        if (hasBefore && hasAfter) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        // One extra row tells whether the window could go further
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<Message> messages;
+        try {
+            if (hasAfter) {
+                String[] key = CursorPage.decodeCursor(after, 2);
+                messages = messageRepository.findInConversationAfter(
+                        conversationId, LocalDateTime.parse(key[0]), UUID.fromString(key[1]), limit);
+            } else if (hasBefore) {
+                String[] key = CursorPage.decodeCursor(before, 2);
+                messages = messageRepository.findInConversationBefore(
+                        conversationId, LocalDateTime.parse(key[0]), UUID.fromString(key[1]), limit);
+            } else {
+                messages = messageRepository.findLatestInConversation(conversationId, limit);
+            }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        boolean more = messages.size() > pageSize;
+        if (more) {
+            messages = messages.subList(0, pageSize);
+        }
+        if (!hasAfter) {
+            // Read newest first; returned oldest first
+            messages = new ArrayList<>(messages);
+            Collections.reverse(messages);
+        }
+
+        List<MessageDTO> items = toDtos(messages);
+        String beforeCursor = null;
+        String afterCursor = hasAfter ? after : hasBefore ? before : null;
+        if (!messages.isEmpty()) {
+            Message oldest = messages.get(0);
+            Message newest = messages.get(messages.size() - 1);
+            if (hasAfter || more) {
+                // Going forward there are always older messages (at least the cursor's)
+                beforeCursor = windowCursor(oldest);
+            }
+            afterCursor = windowCursor(newest);
+        }
+        return MessageWindow.builder()
+                .items(items)
+                .beforeCursor(beforeCursor)
+                .afterCursor(afterCursor)
+                .hasNewer(hasAfter ? more : hasBefore)
+                .build();
+    }
+
+    /**
+     * Convert messages, deriving read state from their conversations' read
+     * watermarks (one lookup for all of them)
+     */
+    private List<MessageDTO> toDtos(List<Message> messages) {
+        Set<UUID> conversationIds = new HashSet<>();
+        for (Message message : messages) {
+            conversationIds.add(message.getConversation().getId());
+        }
+        Map<UUID, LocalDateTime> lastReadAt = new HashMap<>();
+        if (!conversationIds.isEmpty()) {
+            for (Object[] row : conversationRepository.findLastReadAtByIds(conversationIds)) {
+                lastReadAt.put((UUID) row[0], (LocalDateTime) row[1]);
+            }
+        }
+        List<MessageDTO> result = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            UUID conversationId = message.getConversation().getId();
+            result.add(MessageDTO.fromEntity(message,
+                    conversationHeaderBuffer.lastReadAt(conversationId, lastReadAt.get(conversationId))));
         }
         return result;
     }
 
+    private static String windowCursor(Message message) {
+        return CursorPage.encodeCursor(message.getCreatedAt().toString(), message.getId().toString());
+    }
+
     /**
      * Get a single message by ID
      */
     public Optional<MessageDTO> getMessageById(UUID id) {
         Optional<Message> message = messageRepository.findById(id);
         if (message.isPresent()) {
-            return Optional.of(MessageDTO.fromEntity(message.get()));
+            return Optional.of(toDtos(List.of(message.get())).get(0));
         }
         return Optional.empty();
     }
 
     /**
-     * Search messages by content
+     * Search messages by content, most relevant first. Served from the in-memory
+     * index; falls back to a database scan while the index is still being built.
      */
     public Page<MessageDTO> searchMessages(String query, Pageable pageable) {
-        return messageRepository.searchMessages(query, pageable)
-                .map(MessageDTO::fromEntity);
+        if (!messageSearchIndex.isReady()) {
+            Page<Message> page = messageRepository.searchMessages(query, pageable);
+            return new PageImpl<>(toDtos(page.getContent()), pageable, page.getTotalElements());
+        }
+
+        SearchHits hits = messageSearchIndex.search(query, (int) pageable.getOffset(), pageable.getPageSize());
+        Map<UUID, Message> messages = new HashMap<>();
+        for (Message message : messageRepository.findAllById(hits.getIds())) {
+            messages.put(message.getId(), message);
+        }
+        List<Message> ordered = new ArrayList<>();
+        for (UUID id : hits.getIds()) {
+            Message message = messages.get(id);
+            if (message != null) {
+                ordered.add(message);
+            }
+        }
+        return new PageImpl<>(toDtos(ordered), pageable, hits.getTotal());
+    }
+
+    /**
+     * Search messages, returning an excerpt around the matches with highlight
+     * offsets instead of the full content
+     */
+    public Page<MessageSnippetDTO> searchMessageSnippets(String query, Pageable pageable) {
+        return searchMessages(query, pageable).map(message -> SearchSnippets.snippet(message, query));
+    }
+
+    /**
+     * Search messages one keyset page at a time. Served from the index by relevance
+     * when it is ready, otherwise from the database newest first; a cursor keeps the
+     * order its search started with. The total is only computed on the first page
+     * when asked for.
+     *
+     * @throws IllegalArgumentException if the cursor is invalid or its index order is gone
+     */
+    public CursorPage<MessageDTO> searchMessagesAfter(String query, String cursor, int size, boolean includeTotal) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        String[] key = firstPage ? null : CursorPage.decodeCursor(cursor, 3);
+        boolean byRelevance = firstPage ? messageSearchIndex.isReady() : RELEVANCE_CURSOR.equals(key[0]);
+
+        try {
+            if (byRelevance) {
+                if (!messageSearchIndex.isReady()) {
+                    throw new IllegalArgumentException("Cursor expired, restart the search");
+                }
+                SearchHits hits = firstPage
+                        ? messageSearchIndex.search(query, 0, pageSize)
+                        : messageSearchIndex.searchAfter(query, Long.parseLong(key[1]), pageSize);
+                List<UUID> ids = hits.getIds();
+                String nextCursor = hits.getTotal() > ids.size()
+                        ? CursorPage.encodeCursor(RELEVANCE_CURSOR, String.valueOf(hits.getLastKey()), "")
+                        : null;
+                Map<UUID, Message> messages = new HashMap<>();
+                for (Message message : messageRepository.findAllById(ids)) {
+                    messages.put(message.getId(), message);
+                }
+                List<Message> ordered = new ArrayList<>();
+                for (UUID id : ids) {
+                    Message message = messages.get(id);
+                    if (message != null) {
+                        ordered.add(message);
+                    }
+                }
+                return new CursorPage<>(toDtos(ordered), nextCursor, includeTotal && firstPage ? hits.getTotal() : null);
+            }
+
+            Pageable limit = PageRequest.of(0, pageSize + 1);
+            List<Message> messages = firstPage
+                    ? messageRepository.searchMessagesFirst(query, limit)
+                    : messageRepository.searchMessagesBefore(query, LocalDateTime.parse(key[1]), UUID.fromString(key[2]), limit);
+            String nextCursor = null;
+            if (messages.size() > pageSize) {
+                messages = messages.subList(0, pageSize);
+                Message last = messages.get(pageSize - 1);
+                nextCursor = CursorPage.encodeCursor(TIME_CURSOR, last.getCreatedAt().toString(), last.getId().toString());
+            }
+            return new CursorPage<>(toDtos(messages), nextCursor,
+                    includeTotal && firstPage ? messageRepository.countSearchMessages(query) : null);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     /**
@@ -112,6 +319,8 @@ public class MessageService {
         conversation.setLastMessagePreview(truncate(request.getContent(), 100));
         conversation.setUnreadCount(1);
         conversation = conversationRepository.save(conversation);
+        openConversationQueue.updateAfterCommit(conversation);
+        dashboardCounters.conversationChangedAfterCommit(null, null, conversation);
 
         // Update customer conversation count
         customerService.incrementConversationCount(customer.getId());
@@ -125,6 +334,8 @@ public class MessageService {
         message.setContent(request.getContent());
         message.setIsRead(false);
         message = messageRepository.save(message);
+        messageSearchIndex.addAfterCommit(message);
+        searchResultCache.invalidateMessageAfterCommit(message.getContent());
 
         return MessageDTO.fromEntity(message);
     }
@@ -138,6 +349,8 @@ public class MessageService {
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
 
         Customer customer = conversation.getCustomer();
+        ConversationStatus previousStatus = conversation.getStatus();
+        UrgencyLevel previousLevel = conversation.getUrgencyLevel();
 
         // Update urgency if new message is more urgent
         UrgencyResult urgency = urgencyDetectionService.analyzeUrgency(request.getContent());
@@ -147,18 +360,21 @@ public class MessageService {
             conversation.setUrgencyReason(urgency.getReason());
         }
 
-        // Update conversation
-        conversation.setLastMessageAt(LocalDateTime.now());
-        conversation.setLastMessagePreview(truncate(request.getContent(), 100));
-        conversation.setUnreadCount(conversation.getUnreadCount() + 1);
-        
         // Reopen if was closed
         if (conversation.getStatus() == ConversationStatus.RESOLVED || 
             conversation.getStatus() == ConversationStatus.CLOSED) {
             conversation.setStatus(ConversationStatus.OPEN);
         }
+        // Writes the row only if urgency or status changed
         conversationRepository.save(conversation);
 
+        // Last message and unread count are coalesced with the conversation's other
+        // header changes; recorded before the queue update so the queue picks them up
+        conversationHeaderBuffer.customerMessageAfterCommit(
+                conversationId, LocalDateTime.now(), truncate(request.getContent(), 100));
+        openConversationQueue.updateAfterCommit(conversation);
+        dashboardCounters.conversationChangedAfterCommit(previousStatus, previousLevel, conversation);
+
         // Create message
         Message message = new Message();
         message.setConversation(conversation);
@@ -168,6 +384,8 @@ public class MessageService {
         message.setContent(request.getContent());
         message.setIsRead(false);
         message = messageRepository.save(message);
+        messageSearchIndex.addAfterCommit(message);
+        searchResultCache.invalidateMessageAfterCommit(message.getContent());
 
         return MessageDTO.fromEntity(message);
     }
@@ -183,6 +401,7 @@ public class MessageService {
         Agent agent = agentService.findById(request.getAgentId())
                 .orElseThrow(() -> new RuntimeException("Agent not found"));
 
+        ConversationStatus previousStatus = conversation.getStatus();
         String content = request.getContent();
         boolean isCannedResponse = false;
 
@@ -196,6 +415,7 @@ public class MessageService {
             // Update usage count
             canned.setUsageCount(canned.getUsageCount() + 1);
             cannedMessageRepository.save(canned);
+            cannedMessageAutocomplete.recordUsage(canned);
         }
 
         // Assign agent if not already assigned
@@ -204,15 +424,15 @@ public class MessageService {
             agentService.incrementActiveConversations(agent.getId());
         }
 
-        // Update conversation status
+        // Update conversation status (writes the row only if it or the agent changed)
         conversation.setStatus(ConversationStatus.IN_PROGRESS);
-        conversation.setLastMessageAt(LocalDateTime.now());
-        conversation.setLastMessagePreview(truncate(content, 100));
-        conversation.setUnreadCount(0);
         conversationRepository.save(conversation);
 
-        // Mark customer messages as read
-        messageRepository.markAllAsReadForConversation(conversationId);
+        // Last message, and customer messages so far read (read watermark), are coalesced
+        // with the conversation's other header changes; recorded before the queue update
+        conversationHeaderBuffer.agentReplyAfterCommit(conversationId, LocalDateTime.now(), truncate(content, 100));
+        openConversationQueue.updateAfterCommit(conversation);
+        dashboardCounters.conversationChangedAfterCommit(previousStatus, conversation.getUrgencyLevel(), conversation);
 
         // Create agent message
         Message message = new Message();
@@ -224,6 +444,8 @@ public class MessageService {
         message.setIsRead(true);
         message.setIsCannedResponse(isCannedResponse);
         message = messageRepository.save(message);
+        messageSearchIndex.addAfterCommit(message);
+        searchResultCache.invalidateMessageAfterCommit(message.getContent());
 
         return MessageDTO.fromEntity(message);
     }
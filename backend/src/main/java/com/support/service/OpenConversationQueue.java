@@ -0,0 +1,593 @@
+package com.support.service;
+
+import com.support.dto.AgentDTO;
+import com.support.dto.ConversationDTO;
+import com.support.dto.ConversationSummary;
+import com.support.dto.CustomerDTO;
+import com.support.model.Agent;
+import com.support.model.Conversation;
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Customer;
+import com.support.repository.ConversationRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory queue of open conversation headers in urgency order (urgency score
+ * descending, then most recent message first), so the agent dashboard's
+ * polling does not sort the conversations table on every request.
+ * <p>
+ * Headers sit in a sorted set with an index by conversation id, so a change
+ * moves one entry instead of re-sorting. Customers and agents are held once
+ * and shared by their headers, so an agent status or customer change shows up
+ * in every header without rewriting them. Write paths hand over the
+ * conversation they changed; it is copied just before their transaction
+ * commits (so later changes in the same transaction are included) and applied
+ * once it has. Paths that update rows directly with SQL ask for those rows to
+ * be reloaded instead.
+ * <p>
+ * The fields ConversationHeaderBuffer writes behind (last message, unread
+ * count, read watermark) are the queue's own: they are taken from the database
+ * plus the buffer's pending changes when a header is loaded, with no flush in
+ * between, then kept current from each change the buffer records, and taken
+ * again from the database after each flush, which recounts the unread counts
+ * of conversations that were read.
+ * They are read with JDBC rather than through JPA: loads run in afterCommit
+ * callbacks, where the finished transaction's persistence context is still
+ * bound and would hand back its managed conversations as they were before the
+ * flush.
+ * <p>
+ * The queue is rebuilt from the database at startup. Until that finishes
+ * {@link #isReady()} is false and callers fall back to the database.
+ */
+@Service
+public class OpenConversationQueue {
+
+    static final List<ConversationStatus> OPEN_STATUSES = List.of(
+            ConversationStatus.OPEN, ConversationStatus.IN_PROGRESS, ConversationStatus.WAITING);
+
+    private static final int REBUILD_BATCH = 1000;
+
+    private static final String HEADERS_SQL =
+            "SELECT id, last_message_at, last_message_preview, unread_count, last_read_at " +
+            "FROM conversations WHERE id IN (%s)";
+
+    private static final Comparator<Header> URGENCY_ORDER = Comparator
+            .comparingInt((Header h) -> h.urgencyScore).reversed()
+            .thenComparing(h -> h.lastMessageAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(h -> h.id);
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationHeaderBuffer conversationHeaderBuffer;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeSet<Header> queue = new TreeSet<>(URGENCY_ORDER);
+    private final Map<UUID, Header> byId = new HashMap<>();
+    private final Map<UUID, Shared<CustomerDTO>> customers = new HashMap<>();
+    private final Map<UUID, Shared<AgentDTO>> agents = new HashMap<>();
+
+    // Conversations changed by live writes while the rebuild runs; the rebuild leaves them alone
+    private Set<UUID> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public OpenConversationQueue(ConversationRepository conversationRepository,
+                                 ConversationHeaderBuffer conversationHeaderBuffer,
+                                 JdbcTemplate jdbcTemplate) {
+        this.conversationRepository = conversationRepository;
+        this.conversationHeaderBuffer = conversationHeaderBuffer;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void followHeaderChanges() {
+        conversationHeaderBuffer.setFollower(new ConversationHeaderBuffer.Follower() {
+            @Override
+            public void recorded(UUID conversationId, Runnable record, Consumer<ConversationDTO> change) {
+                headerChanged(conversationId, record, change);
+            }
+
+            @Override
+            public void flushed(List<UUID> conversationIds) {
+                headersFlushed(conversationIds);
+            }
+        });
+    }
+
+    /**
+     * Load all open conversations in the background; live writes are applied meanwhile
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(this::rebuild, "open-conversation-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            UUID afterId = null;
+            do {
+                afterId = rebuildBatch(afterId);
+            } while (afterId != null);
+        } catch (RuntimeException e) {
+            System.err.println("Open conversation queue rebuild failed, listings stay on the database: "
+                    + e.getMessage());
+            return;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+        System.out.println("Open conversation queue built: " + size() + " conversations in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Queue the next batch of open conversations, skipping those live writes have queued already
+     *
+     * @return the last id in the batch, null when there are no more
+     */
+    private UUID rebuildBatch(UUID afterId) {
+        UUID[] lastId = {null};
+        conversationHeaderBuffer.withoutFlush(() -> {
+            List<Conversation> batch = conversationRepository.findByStatusAfterIdWithParticipants(
+                    OPEN_STATUSES, afterId, PageRequest.of(0, REBUILD_BATCH));
+            List<ConversationDTO> headers = new ArrayList<>(batch.size());
+            for (Conversation conversation : batch) {
+                headers.add(ConversationDTO.fromEntity(conversation));
+            }
+            lock.writeLock().lock();
+            try {
+                for (ConversationDTO header : headers) {
+                    if (!changedDuringRebuild.contains(header.getId())) {
+                        putLocked(conversationHeaderBuffer.merge(header));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                lastId[0] = batch.get(batch.size() - 1).getId();
+            }
+        });
+        return lastId[0];
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Open conversations in urgency order
+     *
+     * @param limit maximum number returned, or null for all
+     */
+    public List<ConversationDTO> getOpen(Integer limit) {
+        return list(limit, header -> true, this::toConversation);
+    }
+
+    /**
+     * Open conversations with no agent assigned, in urgency order
+     *
+     * @param limit maximum number returned, or null for all
+     */
+    public List<ConversationDTO> getUnassigned(Integer limit) {
+        return list(limit, OpenConversationQueue::isUnassigned, this::toConversation);
+    }
+
+    /**
+     * Like {@link #getOpen}, as summaries
+     */
+    public List<ConversationSummary> getOpenSummaries(Integer limit) {
+        return list(limit, header -> true, this::toSummary);
+    }
+
+    /**
+     * Like {@link #getUnassigned}, as summaries
+     */
+    public List<ConversationSummary> getUnassignedSummaries(Integer limit) {
+        return list(limit, OpenConversationQueue::isUnassigned, this::toSummary);
+    }
+
+    private static boolean isUnassigned(Header header) {
+        return header.agentId == null && header.conversation.getStatus() == ConversationStatus.OPEN;
+    }
+
+    private <T> List<T> list(Integer limit, Predicate<Header> filter, Function<Header, T> view) {
+        int max = limit != null ? Math.max(limit, 0) : Integer.MAX_VALUE;
+        List<T> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Header header : queue) {
+                if (result.size() >= max) {
+                    break;
+                }
+                if (filter.test(header)) {
+                    result.add(view.apply(header));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Called under the lock
+    private ConversationDTO toConversation(Header header) {
+        return header.conversation.toBuilder()
+                .customer(header.customerId != null ? customers.get(header.customerId).value : null)
+                .assignedAgent(header.agentId != null ? agents.get(header.agentId).value : null)
+                .build();
+    }
+
+    // Called under the read lock
+    private ConversationSummary toSummary(Header header) {
+        ConversationDTO conversation = header.conversation;
+        return ConversationSummary.builder()
+                .id(conversation.getId())
+                .subject(conversation.getSubject())
+                .status(conversation.getStatus())
+                .urgencyScore(conversation.getUrgencyScore())
+                .urgencyLevel(conversation.getUrgencyLevel())
+                .unreadCount(conversation.getUnreadCount())
+                .lastMessageAt(conversation.getLastMessageAt())
+                .lastMessagePreview(conversation.getLastMessagePreview())
+                .customerId(header.customerId)
+                .customerName(header.customerId != null ? customers.get(header.customerId).value.getName() : null)
+                .assignedAgentId(header.agentId)
+                .assignedAgentName(header.agentId != null ? agents.get(header.agentId).value.getName() : null)
+                .build();
+    }
+
+    /**
+     * Add, move or drop the conversation's header once the current transaction
+     * commits (immediately if there is none), from its state at commit time
+     */
+    public void updateAfterCommit(Conversation conversation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private ConversationDTO header;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    header = ConversationDTO.fromEntity(conversation);
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply(header);
+                }
+            });
+        } else {
+            apply(ConversationDTO.fromEntity(conversation));
+        }
+    }
+
+    /**
+     * Reload the given conversations from the database once the current transaction
+     * commits, for writes that bypass the entities (batch SQL updates)
+     */
+    public void reloadAfterCommit(Collection<UUID> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(conversationIds);
+        afterCommit(() -> reload(ids));
+    }
+
+    /**
+     * Replace the given conversations' headers with their state in the database
+     * plus the header changes not written yet; rows no longer found or no longer
+     * open are dropped
+     */
+    private void reload(List<UUID> ids) {
+        conversationHeaderBuffer.withoutFlush(() -> {
+            List<ConversationDTO> headers = new ArrayList<>(ids.size());
+            Map<UUID, ConversationDTO> stored = loadHeaderFields(ids);
+            for (Conversation conversation : conversationRepository.findAllByIdWithParticipants(ids)) {
+                ConversationDTO header = ConversationDTO.fromEntity(conversation);
+                ConversationDTO fields = stored.get(header.getId());
+                if (fields != null) {
+                    header.setLastMessageAt(fields.getLastMessageAt());
+                    header.setLastMessagePreview(fields.getLastMessagePreview());
+                    header.setUnreadCount(fields.getUnreadCount());
+                    header.setLastReadAt(fields.getLastReadAt());
+                }
+                headers.add(header);
+            }
+            lock.writeLock().lock();
+            try {
+                for (UUID id : ids) {
+                    removeLocked(id);
+                    markChanged(id);
+                }
+                for (ConversationDTO header : headers) {
+                    if (OPEN_STATUSES.contains(header.getStatus())) {
+                        putLocked(conversationHeaderBuffer.merge(header));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Refresh the agent shown on its open conversations, after commit
+     */
+    public void updateAgentAfterCommit(Agent agent) {
+        AgentDTO dto = AgentDTO.fromEntity(agent);
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Shared<AgentDTO> shared = agents.get(dto.getId());
+                if (shared != null) {
+                    shared.value = dto;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Refresh the customer shown on their open conversations, after commit
+     */
+    public void updateCustomerAfterCommit(Customer customer) {
+        CustomerDTO dto = CustomerDTO.fromEntity(customer);
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Shared<CustomerDTO> shared = customers.get(dto.getId());
+                if (shared != null) {
+                    shared.value = dto;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void apply(ConversationDTO conversation) {
+        lock.writeLock().lock();
+        try {
+            markChanged(conversation.getId());
+            if (!OPEN_STATUSES.contains(conversation.getStatus())) {
+                removeLocked(conversation.getId());
+                return;
+            }
+            Header existing = byId.get(conversation.getId());
+            if (existing != null) {
+                // The committed copy's header fields may predate changes recorded since it was loaded
+                ConversationDTO current = existing.conversation;
+                conversation.setLastMessageAt(current.getLastMessageAt());
+                conversation.setLastMessagePreview(current.getLastMessagePreview());
+                conversation.setUnreadCount(current.getUnreadCount());
+                conversation.setLastReadAt(current.getLastReadAt());
+                putLocked(conversation);
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Newly open: its header fields are loaded together with the pending changes
+        reload(List.of(conversation.getId()));
+    }
+
+    /**
+     * Record a header change with ConversationHeaderBuffer and apply it to the
+     * conversation's header, if it is queued, in one step
+     */
+    private void headerChanged(UUID id, Runnable record, Consumer<ConversationDTO> change) {
+        lock.writeLock().lock();
+        try {
+            record.run();
+            Header existing = byId.get(id);
+            if (existing != null) {
+                ConversationDTO conversation = toConversation(existing);
+                change.accept(conversation);
+                putLocked(conversation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Take the header fields of queued conversations from the database after a flush
+     * (which recounts the unread counts of read ones), plus the changes recorded since. Status and the
+     * rest are left alone, as the flush did not write them.
+     */
+    private void headersFlushed(List<UUID> ids) {
+        List<UUID> queued = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (UUID id : ids) {
+                if (byId.containsKey(id)) {
+                    queued.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (queued.isEmpty()) {
+            return;
+        }
+        conversationHeaderBuffer.withoutFlush(() -> {
+            Collection<ConversationDTO> loaded = loadHeaderFields(queued).values();
+            lock.writeLock().lock();
+            try {
+                for (ConversationDTO stored : loaded) {
+                    Header existing = byId.get(stored.getId());
+                    if (existing == null) {
+                        continue;
+                    }
+                    ConversationDTO header = conversationHeaderBuffer.merge(stored);
+                    ConversationDTO conversation = toConversation(existing);
+                    conversation.setLastMessageAt(header.getLastMessageAt());
+                    conversation.setLastMessagePreview(header.getLastMessagePreview());
+                    conversation.setUnreadCount(header.getUnreadCount());
+                    conversation.setLastReadAt(header.getLastReadAt());
+                    putLocked(conversation);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * The stored header fields (last message, unread count, read watermark) of the
+     * given conversations, read past any bound persistence context
+     */
+    private Map<UUID, ConversationDTO> loadHeaderFields(List<UUID> ids) {
+        Map<UUID, ConversationDTO> headers = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query(String.format(HEADERS_SQL, placeholders), rs -> {
+            UUID id = rs.getObject("id", UUID.class);
+            int unreadCount = rs.getInt("unread_count");
+            Integer storedUnreadCount = rs.wasNull() ? null : unreadCount;
+            headers.put(id, ConversationDTO.builder()
+                    .id(id)
+                    .lastMessageAt(toLocalDateTime(rs.getTimestamp("last_message_at")))
+                    .lastMessagePreview(rs.getString("last_message_preview"))
+                    .unreadCount(storedUnreadCount)
+                    .lastReadAt(toLocalDateTime(rs.getTimestamp("last_read_at")))
+                    .build());
+        }, ids.toArray());
+        return headers;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private void markChanged(UUID id) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+    }
+
+    private void putLocked(ConversationDTO conversation) {
+        removeLocked(conversation.getId());
+
+        Header header = new Header(conversation);
+        if (header.customerId != null) {
+            customers.computeIfAbsent(header.customerId, id -> new Shared<>()).acquire(conversation.getCustomer());
+        }
+        if (header.agentId != null) {
+            agents.computeIfAbsent(header.agentId, id -> new Shared<>()).acquire(conversation.getAssignedAgent());
+        }
+        // Shared copies hold the customer and agent; the header keeps only their ids
+        header.conversation.setCustomer(null);
+        header.conversation.setAssignedAgent(null);
+
+        queue.add(header);
+        byId.put(header.id, header);
+    }
+
+    private void removeLocked(UUID id) {
+        Header header = byId.remove(id);
+        if (header == null) {
+            return;
+        }
+        queue.remove(header);
+        if (header.customerId != null && customers.get(header.customerId).release()) {
+            customers.remove(header.customerId);
+        }
+        if (header.agentId != null && agents.get(header.agentId).release()) {
+            agents.remove(header.agentId);
+        }
+    }
+
+    /**
+     * Conversation without customer and agent, plus the fields it is ordered by
+     */
+    private static class Header {
+        private final ConversationDTO conversation;
+        private final UUID id;
+        private final int urgencyScore;
+        private final LocalDateTime lastMessageAt;
+        private final UUID customerId;
+        private final UUID agentId;
+
+        Header(ConversationDTO conversation) {
+            this.conversation = conversation;
+            this.id = conversation.getId();
+            this.urgencyScore = conversation.getUrgencyScore() != null ? conversation.getUrgencyScore() : 0;
+            this.lastMessageAt = conversation.getLastMessageAt();
+            this.customerId = conversation.getCustomer() != null ? conversation.getCustomer().getId() : null;
+            this.agentId = conversation.getAssignedAgent() != null ? conversation.getAssignedAgent().getId() : null;
+        }
+    }
+
+    /**
+     * Customer or agent shared by the headers that reference it; the latest copy wins
+     */
+    private static class Shared<T> {
+        private T value;
+        private int references;
+
+        void acquire(T latest) {
+            value = latest;
+            references++;
+        }
+
+        /**
+         * @return true when no header references it any more
+         */
+        boolean release() {
+            return --references == 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.support.service;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Row source backed by OpenCSV over a character stream.
+ */
+class OpenCsvRowSource implements CsvRowSource {
+
+    private final CSVReader reader;
+    private final CountingInputStream input;
+    private boolean headerSkipped;
+
+    OpenCsvRowSource(InputStream input) {
+        this.input = new CountingInputStream(input);
+        this.reader = new CSVReader(new BufferedReader(new InputStreamReader(this.input, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public CsvMessageRow next() throws IOException {
+        try {
+            if (!headerSkipped) {
+                reader.readNext();
+                headerSkipped = true;
+            }
+
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                if (row.length < 3) continue;
+
+                String messageContent = row[2].trim();
+                if (messageContent.isEmpty()) continue;
+
+                return new CsvMessageRow(row[0].trim(), row[1].trim(), messageContent);
+            }
+            return null;
+        } catch (CsvValidationException e) {
+            throw new IOException("Invalid CSV row: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long bytesRead() {
+        return input.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Counts bytes handed to the decoder (which reads a buffer ahead of the parser)
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.support.service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of ranked ids from an in-memory search index and the total number
+ * of matches
+ */
+public class SearchHits {
+    private final List<UUID> ids;
+    private final long total;
+    private final long lastKey;
+
+    public SearchHits(List<UUID> ids, long total) {
+        this(ids, total, -1);
+    }
+
+    public SearchHits(List<UUID> ids, long total, long lastKey) {
+        this.ids = ids;
+        this.total = total;
+        this.lastKey = lastKey;
+    }
+
+    public List<UUID> getIds() {
+        return ids;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Rank key of the last id, for resuming after it; -1 if the index has none or
+     * the page is empty
+     */
+    public long getLastKey() {
+        return lastKey;
+    }
+}
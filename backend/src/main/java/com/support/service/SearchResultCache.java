@@ -0,0 +1,256 @@
+package com.support.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of search results, so agents running the same search within
+ * seconds of each other share one lookup.
+ * <p>
+ * Entries are keyed by endpoint, normalized query (trimmed, lower-cased, single
+ * spaces) and page, expire after a TTL and are evicted least recently used past
+ * a size bound. Writes invalidate selectively once committed: a new message
+ * drops the cached message searches whose every query word occurs in its
+ * content, and a new customer drops customer searches matching its name, email
+ * or phone. The check is a superset of what the searches match, so a cached
+ * result is never missing a committed write. A load that overlaps a write is
+ * returned but not cached.
+ */
+@Service
+public class SearchResultCache {
+
+    /**
+     * What a cached result contains, and so which writes can change it
+     */
+    public enum Source {
+        MESSAGES(true, false),
+        CUSTOMERS(false, true),
+        ALL(true, true);
+
+        private final boolean messages;
+        private final boolean customers;
+
+        Source(boolean messages, boolean customers) {
+            this.messages = messages;
+            this.customers = customers;
+        }
+    }
+
+    @Value("${app.search.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.search.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Bumped by every invalidation; loads that saw a different value are not cached
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Cached result for the endpoint, query and page, loading it on a miss
+     */
+    public <T> T get(String endpoint, Source source, String query, String page, Supplier<T> loader) {
+        return get(endpoint, source, query, page, loader, result -> true);
+    }
+
+    /**
+     * Like {@link #get(String, Source, String, String, Supplier)}, caching only
+     * results accepted by {@code cacheable} (e.g. not partial ones)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, Source source, String query, String page,
+                     Supplier<T> loader, Predicate<T> cacheable) {
+        String normalized = normalize(query);
+        String key = endpoint + '\u0000' + normalized + '\u0000' + page;
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.nanoTime()) {
+                    hits.incrementAndGet();
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            loadGeneration = generation;
+        }
+
+        // Load outside the lock so a slow search does not block hits on other keys
+        T value = loader.get();
+        if (!cacheable.test(value)) {
+            return value;
+        }
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                long expiresAt = System.nanoTime() + ttlSeconds * 1_000_000_000L;
+                entries.put(key, new Entry(value, source, words(normalized), expiresAt));
+                evictOverflow();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drop cached message searches a new message could appear in, after commit
+     */
+    public void invalidateMessageAfterCommit(String content) {
+        String text = lower(content);
+        afterCommit(() -> invalidate(entry -> entry.source.messages && containsAll(text, entry.words)));
+    }
+
+    /**
+     * Drop cached customer searches a new customer could appear in, after commit
+     */
+    public void invalidateCustomerAfterCommit(String name, String email, String phone) {
+        String text = lower(name) + ' ' + lower(email) + ' ' + lower(phone);
+        String phoneDigits = digits(phone);
+        afterCommit(() -> invalidate(entry -> entry.source.customers
+                && (containsAll(text, entry.words) || matchesPhone(phoneDigits, entry.words))));
+    }
+
+    /**
+     * Drop everything, after commit (bulk writes, where per-row checks cost more than a refill)
+     */
+    public void invalidateAllAfterCommit() {
+        afterCommit(() -> invalidate(entry -> true));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private synchronized void invalidate(Predicate<Entry> affected) {
+        generation++;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (affected.test(iterator.next())) {
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        long now = System.nanoTime();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            if (eldest.expiresAt <= now) {
+                expirations.incrementAndGet();
+            } else {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * Size, hit ratio and eviction counters since startup
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    static String normalize(String text) {
+        return lower(text).trim().replaceAll("\\s+", " ");
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Runs of letters and digits, as the message index tokenizes
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}\\p{Nd}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Every letter/digit run of the query is a substring of the text: true whenever
+     * the index (all tokens, last as prefix), the trigram index or a LIKE '%query%'
+     * scan could match it
+     */
+    private static boolean containsAll(String text, List<String> queryWords) {
+        for (String word : queryWords) {
+            if (!text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesPhone(String phoneDigits, List<String> queryWords) {
+        String queryDigits = digits(String.join("", queryWords));
+        return !phoneDigits.isEmpty() && !queryDigits.isEmpty() && phoneDigits.contains(queryDigits);
+    }
+
+    private static String digits(String value) {
+        return value == null ? "" : value.replaceAll("\\D", "");
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final Source source;
+        private final List<String> words;
+        private final long expiresAt;
+
+        Entry(Object value, Source source, List<String> words, long expiresAt) {
+            this.value = value;
+            this.source = source;
+            this.words = words;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.support.service;
+
+import com.support.dto.MessageDTO;
+import com.support.dto.MessageSnippetDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cuts search hits down to a fixed-size excerpt around the matches.
+ * <p>
+ * Matches are found in one scan of the content using the message index's
+ * rules (letter/digit words equal to a query token, the last token as a
+ * prefix); if none are found, as for database fallback results, plain
+ * case-insensitive occurrences of the query are used. The excerpt is the
+ * window holding the most matches, widened to word boundaries, with "…" where
+ * text was cut.
+ */
+public final class SearchSnippets {
+
+    static final int SNIPPET_LENGTH = 160;
+
+    // Context kept before the first match of the window
+    private static final int LEAD = 40;
+
+    private static final int MAX_HITS = 64;
+
+    private static final String ELLIPSIS = "…";
+
+    private SearchSnippets() {
+    }
+
+    public static MessageSnippetDTO snippet(MessageDTO message, String query) {
+        String content = message.getContent() == null ? "" : message.getContent();
+        List<int[]> hits = findHits(content, query);
+
+        int start = 0;
+        int end = content.length();
+        if (content.length() > SNIPPET_LENGTH) {
+            start = windowStart(content, hits);
+            end = windowEnd(content, hits, start);
+        }
+
+        String prefix = start > 0 ? ELLIPSIS : "";
+        String suffix = end < content.length() ? ELLIPSIS : "";
+        List<int[]> highlights = new ArrayList<>();
+        for (int[] hit : hits) {
+            if (hit[0] >= start && hit[1] <= end) {
+                int shift = prefix.length() - start;
+                highlights.add(new int[]{hit[0] + shift, hit[1] + shift});
+            }
+        }
+
+        return MessageSnippetDTO.builder()
+                .id(message.getId())
+                .conversationId(message.getConversationId())
+                .senderId(message.getSenderId())
+                .senderType(message.getSenderType())
+                .senderName(message.getSenderName())
+                .snippet(prefix + content.substring(start, end) + suffix)
+                .highlights(highlights)
+                .contentLength(content.length())
+                .isRead(message.getIsRead())
+                .isCannedResponse(message.getIsCannedResponse())
+                .createdAt(message.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * [start, end) ranges of matches in the content, in order
+     */
+    static List<int[]> findHits(String content, String query) {
+        List<String> tokens = MessageSearchIndex.tokenize(query);
+        List<int[]> hits = new ArrayList<>();
+        if (tokens.isEmpty()) {
+            return hits;
+        }
+        String last = tokens.get(tokens.size() - 1);
+        boolean lastIsPrefix = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        int wordStart = -1;
+        for (int i = 0; i <= content.length() && hits.size() < MAX_HITS; i++) {
+            boolean wordChar = i < content.length() && Character.isLetterOrDigit(content.charAt(i));
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                String word = content.substring(wordStart, i).toLowerCase(Locale.ROOT);
+                if (tokens.contains(word)) {
+                    hits.add(new int[]{wordStart, i});
+                } else if (lastIsPrefix && word.startsWith(last)) {
+                    hits.add(new int[]{wordStart, Math.min(i, wordStart + last.length())});
+                }
+                wordStart = -1;
+            }
+        }
+
+        if (hits.isEmpty()) {
+            // Substring matches (e.g. inside a longer word), as the database search finds them
+            String lowerContent = content.toLowerCase(Locale.ROOT);
+            String lowerQuery = query.trim().toLowerCase(Locale.ROOT);
+            if (!lowerQuery.isEmpty() && lowerContent.length() == content.length()) {
+                for (int i = lowerContent.indexOf(lowerQuery); i >= 0 && hits.size() < MAX_HITS;
+                     i = lowerContent.indexOf(lowerQuery, i + lowerQuery.length())) {
+                    hits.add(new int[]{i, i + lowerQuery.length()});
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Start of the window that holds the most matches, moved to a word boundary
+     */
+    private static int windowStart(String content, List<int[]> hits) {
+        int best = 0;
+        int bestCount = -1;
+        int firstHit = 0;
+        for (int[] hit : hits) {
+            int start = Math.max(0, Math.min(hit[0] - LEAD, content.length() - SNIPPET_LENGTH));
+            int count = 0;
+            for (int[] other : hits) {
+                if (other[0] >= start && other[1] <= start + SNIPPET_LENGTH) {
+                    count++;
+                }
+            }
+            if (count > bestCount) {
+                best = start;
+                bestCount = count;
+                firstHit = hit[0];
+            }
+        }
+        int start = best;
+        while (start > 0 && start < firstHit && !Character.isWhitespace(content.charAt(start - 1))) {
+            start++;
+        }
+        if (start > 0 && start < content.length() && Character.isLowSurrogate(content.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * End of the window, moved back to a word boundary without dropping a match
+     */
+    private static int windowEnd(String content, List<int[]> hits, int start) {
+        int end = Math.min(content.length(), start + SNIPPET_LENGTH);
+        if (end == content.length()) {
+            return end;
+        }
+        int lastHitEnd = start;
+        for (int[] hit : hits) {
+            if (hit[0] >= start && hit[1] <= end) {
+                lastHitEnd = Math.max(lastHitEnd, hit[1]);
+            }
+        }
+        int boundary = end;
+        while (boundary > lastHitEnd && !Character.isWhitespace(content.charAt(boundary))) {
+            boundary--;
+        }
+        if (boundary > lastHitEnd) {
+            end = boundary;
+        }
+        if (Character.isHighSurrogate(content.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+}
@@ -1,18 +1,41 @@
 package com.support.service;
 
+import com.opencsv.CSVReader;
 import com.support.model.Conversation.UrgencyLevel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service to detect urgency level of customer messages.
- * Uses simple keyword matching to categorize messages.
+ * Uses keyword matching to categorize messages; all keywords are matched
+ * in a single pass by a precompiled {@link UrgencyMatcher}.
+ * Rules are loaded from a CSV file and can be reloaded at runtime: a new
+ * matcher is compiled off to the side and published with an atomic swap,
+ * so scoring never blocks or sees a half-built rule set.
  */
 @Service
 public class UrgencyDetectionService {
 
+    // Built-in rules, used until the rules file has been loaded (and if it is missing)
     // Keywords that indicate high urgency (loan/payment issues)
     private static final List<String> CRITICAL_KEYWORDS = Arrays.asList(
             "fraud", "unauthorized", "stolen", "hacked", "emergency"
@@ -28,39 +51,300 @@ public class UrgencyDetectionService {
             "how long", "status", "issue", "problem", "help"
     );
 
+    private static final UrgencyResult NO_CONTENT = new UrgencyResult(0, UrgencyLevel.LOW, "No content");
+    private static final UrgencyResult GENERAL_INQUIRY = new UrgencyResult(20, UrgencyLevel.LOW, "General inquiry");
+
+    // Batch scoring settings (parallelism 0 = one worker per core)
+    @Value("${app.urgency.batch.parallelism:0}")
+    private int batchParallelism;
+
+    @Value("${app.urgency.batch.chunk-size:512}")
+    private int batchChunkSize;
+
+    @Value("${app.urgency.batch.sequential-threshold:2048}")
+    private int sequentialThreshold;
+
+    private volatile ForkJoinPool batchPool;
+
+    @Value("${app.urgency.rules-path:classpath:data/urgency-rules.csv}")
+    private String rulesPath;
+
+    private final ResourceLoader resourceLoader;
+
+    // Current compiled rule set; replaced wholesale on reload
+    private final AtomicReference<RuleSet> ruleSet;
+    private final AtomicLong ruleSetVersion = new AtomicLong();
+
+    public UrgencyDetectionService(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+        this.ruleSet = new AtomicReference<>(
+                new RuleSet(0, "built-in", UrgencyMatcher.compile(defaultRules()), LocalDateTime.now()));
+    }
+
+    @PostConstruct
+    void loadRulesOnStartup() {
+        try {
+            reloadRules();
+        } catch (RuntimeException e) {
+            System.out.println("Could not load urgency rules from " + rulesPath
+                    + ", using built-in rules: " + e.getMessage());
+        }
+    }
+
     /**
      * Analyzes message content and returns urgency information.
      */
     public UrgencyResult analyzeUrgency(String messageContent) {
-        if (messageContent == null || messageContent.trim().isEmpty()) {
-            return new UrgencyResult(0, UrgencyLevel.LOW, "No content");
+        return score(ruleSet.get().getMatcher(), messageContent);
+    }
+
+    private static UrgencyResult score(UrgencyMatcher matcher, String messageContent) {
+        if (isBlank(messageContent)) {
+            return NO_CONTENT;
         }
 
-        String content = messageContent.toLowerCase();
+        // Single case-insensitive pass over the content for every keyword
+        UrgencyResult match = matcher.match(messageContent);
+        if (match != null) {
+            return match;
+        }
 
-        // Check for critical keywords first
-        for (String keyword : CRITICAL_KEYWORDS) {
-            if (content.contains(keyword)) {
-                return new UrgencyResult(95, UrgencyLevel.CRITICAL, "Critical: " + keyword);
+        // Default to low urgency
+        return GENERAL_INQUIRY;
+    }
+
+    /**
+     * Scores a batch of messages, returning results in input order.
+     * Large batches are split into chunks and scored across all cores.
+     */
+    public List<UrgencyResult> analyzeUrgencyBatch(List<String> messageContents) {
+        return analyzeUrgencyBatch(messageContents, batchChunkSize);
+    }
+
+    /**
+     * Scores a batch of messages using the given chunk size per fork-join task.
+     */
+    public List<UrgencyResult> analyzeUrgencyBatch(List<String> messageContents, int chunkSize) {
+        List<String> contents = messageContents instanceof RandomAccess
+                ? messageContents : new ArrayList<>(messageContents);
+        UrgencyResult[] results = new UrgencyResult[contents.size()];
+        // The whole batch is scored against one rule set, even if a reload happens meanwhile
+        UrgencyMatcher matcher = ruleSet.get().getMatcher();
+
+        // Not worth the fork-join overhead for small inputs
+        if (contents.size() <= Math.max(sequentialThreshold, chunkSize)) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = score(matcher, contents.get(i));
             }
+        } else {
+            getBatchPool().invoke(new ScoreTask(matcher, contents, results, 0, results.length, Math.max(1, chunkSize)));
         }
+        return Arrays.asList(results);
+    }
 
-        // Check for high urgency keywords
-        for (String keyword : HIGH_KEYWORDS) {
-            if (content.contains(keyword)) {
-                return new UrgencyResult(80, UrgencyLevel.HIGH, "High priority: " + keyword);
+    /**
+     * Scores a stream of messages, returning results in encounter order.
+     */
+    public List<UrgencyResult> analyzeUrgencyBatch(Stream<String> messageContents) {
+        return analyzeUrgencyBatch(messageContents.collect(Collectors.toList()));
+    }
+
+    /**
+     * Scores a batch on the batch pool, so the caller can keep working (e.g. writing
+     * the previous batch) while it runs.
+     */
+    public CompletableFuture<List<UrgencyResult>> analyzeUrgencyBatchAsync(List<String> messageContents) {
+        return CompletableFuture.supplyAsync(() -> analyzeUrgencyBatch(messageContents), getBatchPool());
+    }
+
+    private ForkJoinPool getBatchPool() {
+        ForkJoinPool pool = batchPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = batchPool;
+                if (pool == null) {
+                    int parallelism = batchParallelism > 0
+                            ? batchParallelism : Runtime.getRuntime().availableProcessors();
+                    pool = new ForkJoinPool(parallelism);
+                    batchPool = pool;
+                }
             }
         }
+        return pool;
+    }
+
+    @PreDestroy
+    void shutdownBatchPool() {
+        if (batchPool != null) {
+            batchPool.shutdown();
+        }
+    }
+
+    /**
+     * Fork-join task that scores a slice of the batch into a shared result array.
+     */
+    private static class ScoreTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final UrgencyMatcher matcher;
+        private final List<String> contents;
+        private final UrgencyResult[] results;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ScoreTask(UrgencyMatcher matcher, List<String> contents, UrgencyResult[] results,
+                  int from, int to, int chunkSize) {
+            this.matcher = matcher;
+            this.contents = contents;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
 
-        // Check for medium urgency keywords
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = score(matcher, contents.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreTask(matcher, contents, results, from, mid, chunkSize),
+                    new ScoreTask(matcher, contents, results, mid, to, chunkSize));
+        }
+    }
+
+    /**
+     * Reloads rules from the configured file and publishes them atomically.
+     * On any error the current rule set stays in place.
+     */
+    public synchronized RuleSet reloadRules() {
+        List<UrgencyMatcher.Rule> rules = readRules(rulesPath);
+        if (rules.isEmpty()) {
+            throw new IllegalStateException("Urgency rules file " + rulesPath + " contains no rules");
+        }
+        RuleSet next = new RuleSet(ruleSetVersion.incrementAndGet(), rulesPath,
+                UrgencyMatcher.compile(rules), LocalDateTime.now());
+        ruleSet.set(next);
+        System.out.println("Loaded " + rules.size() + " urgency rules (version " + next.getVersion() + ")");
+        return next;
+    }
+
+    /**
+     * Currently active rule set
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet.get();
+    }
+
+    /**
+     * Parse rules from a CSV file with columns: keyword, level, score, reason.
+     * Rules are checked in file order when scores are equal.
+     */
+    private List<UrgencyMatcher.Rule> readRules(String path) {
+        Resource resource = resourceLoader.getResource(path);
+        if (!resource.exists()) {
+            throw new IllegalStateException("Urgency rules file not found: " + path);
+        }
+
+        List<UrgencyMatcher.Rule> rules = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String[] row;
+            int line = 0;
+            while ((row = reader.readNext()) != null) {
+                line++;
+                // Skip header, blank lines and comments
+                if (line == 1 && row.length > 0 && row[0].trim().equalsIgnoreCase("keyword")) continue;
+                if (row.length == 0 || row[0].trim().isEmpty() || row[0].trim().startsWith("#")) continue;
+                if (row.length < 4) {
+                    throw new IllegalStateException("Invalid urgency rule on line " + line + ": expected 4 columns");
+                }
+
+                String keyword = row[0].trim();
+                UrgencyLevel level = UrgencyLevel.valueOf(row[1].trim().toUpperCase());
+                int score = Integer.parseInt(row[2].trim());
+                String reason = row[3].trim();
+                rules.add(new UrgencyMatcher.Rule(keyword, level, score, reason));
+            }
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not read urgency rules from " + path + ": " + e.getMessage(), e);
+        }
+        return rules;
+    }
+
+    /**
+     * Built-in keyword rules, in the order they are checked.
+     */
+    static List<UrgencyMatcher.Rule> defaultRules() {
+        List<UrgencyMatcher.Rule> rules = new ArrayList<>();
+        for (String keyword : CRITICAL_KEYWORDS) {
+            rules.add(new UrgencyMatcher.Rule(keyword, UrgencyLevel.CRITICAL, 95, "Critical: " + keyword));
+        }
+        for (String keyword : HIGH_KEYWORDS) {
+            rules.add(new UrgencyMatcher.Rule(keyword, UrgencyLevel.HIGH, 80, "High priority: " + keyword));
+        }
         for (String keyword : MEDIUM_KEYWORDS) {
-            if (content.contains(keyword)) {
-                return new UrgencyResult(50, UrgencyLevel.MEDIUM, "Medium priority: " + keyword);
+            rules.add(new UrgencyMatcher.Rule(keyword, UrgencyLevel.MEDIUM, 50, "Medium priority: " + keyword));
+        }
+        return rules;
+    }
+
+    /**
+     * Same check as trim().isEmpty() without allocating a trimmed copy
+     */
+    private static boolean isBlank(String text) {
+        if (text == null) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
             }
         }
+        return true;
+    }
 
-        // Default to low urgency
-        return new UrgencyResult(20, UrgencyLevel.LOW, "General inquiry");
+    /**
+     * Immutable snapshot of compiled rules, swapped in as a whole on reload.
+     */
+    public static class RuleSet {
+        private final long version;
+        private final String source;
+        private final UrgencyMatcher matcher;
+        private final LocalDateTime loadedAt;
+
+        public RuleSet(long version, String source, UrgencyMatcher matcher, LocalDateTime loadedAt) {
+            this.version = version;
+            this.source = source;
+            this.matcher = matcher;
+            this.loadedAt = loadedAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public UrgencyMatcher getMatcher() {
+            return matcher;
+        }
+
+        public LocalDateTime getLoadedAt() {
+            return loadedAt;
+        }
+
+        public int getRuleCount() {
+            return matcher.getRules().size();
+        }
     }
 
     /**
@@ -0,0 +1,286 @@
+package com.support.service;
+
+import com.support.model.Conversation.UrgencyLevel;
+import com.support.service.UrgencyDetectionService.UrgencyResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable Aho-Corasick automaton over urgency keywords.
+ * Scans a message once, case-insensitively, and reports the best matching rule
+ * (highest score, then earliest rule) without allocating a lower-cased copy.
+ * <p>
+ * Case folding follows String.toLowerCase() in the default locale, as the keyword
+ * loop it replaced did: characters that lower-case to something other than
+ * Character.toLowerCase (U+0130 to i and U+0307, Turkish I to dotless i) are fed
+ * to the automaton as their lower-cased form. Context-dependent mappings
+ * (Greek final sigma) are not reproduced.
+ */
+public final class UrgencyMatcher {
+
+    private static final int ROOT = 0;
+
+    private final Rule[] rules;
+    private final UrgencyResult[] results;
+
+    // Keyword alphabet: ASCII chars are looked up directly, the rest by binary search
+    private final int[] asciiClass;
+    private final char[] extraChars;
+    private final int alphabetSize;
+
+    // Non-ASCII chars whose String lower case differs from Character.toLowerCase, and its classes
+    private final char[] foldedChars;
+    private final int[][] foldedClasses;
+
+    // Dense transition table (state * alphabetSize + class) and best rule per state
+    private final int[] transitions;
+    private final int[] bestRule;
+
+    private UrgencyMatcher(Rule[] rules, int[] asciiClass, char[] extraChars, int alphabetSize,
+                           char[] foldedChars, int[][] foldedClasses, int[] transitions, int[] bestRule) {
+        this.rules = rules;
+        this.asciiClass = asciiClass;
+        this.extraChars = extraChars;
+        this.alphabetSize = alphabetSize;
+        this.foldedChars = foldedChars;
+        this.foldedClasses = foldedClasses;
+        this.transitions = transitions;
+        this.bestRule = bestRule;
+        this.results = new UrgencyResult[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            results[i] = new UrgencyResult(rules[i].getScore(), rules[i].getLevel(), rules[i].getReason());
+        }
+    }
+
+    /**
+     * Compile rules into a matcher. Rule order breaks ties between equal scores.
+     */
+    public static UrgencyMatcher compile(List<Rule> ruleList) {
+        Rule[] rules = ruleList.toArray(new Rule[0]);
+
+        // Build the alphabet from the lower-cased keyword characters
+        TreeSet<Character> chars = new TreeSet<>();
+        for (Rule rule : rules) {
+            for (char c : rule.getKeyword().toCharArray()) {
+                chars.add(Character.toLowerCase(c));
+            }
+        }
+        int[] asciiClass = new int[128];
+        List<Character> extra = new ArrayList<>();
+        int alphabetSize = 1; // class 0 = any character not used by a keyword
+        for (char c : chars) {
+            if (c < 128) {
+                asciiClass[c] = alphabetSize++;
+            } else {
+                extra.add(c);
+                alphabetSize++;
+            }
+        }
+        char[] extraChars = new char[extra.size()];
+        for (int i = 0; i < extraChars.length; i++) {
+            extraChars[i] = extra.get(i);
+        }
+        int extraBase = alphabetSize - extraChars.length;
+        // Fold ASCII upper case onto the same classes so scanning needs no toLowerCase
+        for (char c = 'A'; c <= 'Z'; c++) {
+            asciiClass[c] = classOf(String.valueOf(c).toLowerCase().charAt(0), asciiClass, extraChars, extraBase);
+        }
+        // The few other chars String.toLowerCase maps differently, with the classes they lower-case to
+        List<Character> folded = new ArrayList<>();
+        List<int[]> foldedClassList = new ArrayList<>();
+        for (char c = 128; c < Character.MIN_SURROGATE; c++) {
+            String lower = String.valueOf(c).toLowerCase();
+            if (lower.length() != 1 || lower.charAt(0) != Character.toLowerCase(c)) {
+                int[] classes = new int[lower.length()];
+                for (int i = 0; i < classes.length; i++) {
+                    classes[i] = classOf(lower.charAt(i), asciiClass, extraChars, extraBase);
+                }
+                folded.add(c);
+                foldedClassList.add(classes);
+            }
+        }
+        char[] foldedChars = new char[folded.size()];
+        for (int i = 0; i < foldedChars.length; i++) {
+            foldedChars[i] = folded.get(i);
+        }
+        int[][] foldedClasses = foldedClassList.toArray(new int[0][]);
+
+        // Build the keyword trie
+        List<Map<Integer, Integer>> goTo = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        goTo.add(new HashMap<>());
+        output.add(-1);
+        for (int r = 0; r < rules.length; r++) {
+            String keyword = rules[r].getKeyword();
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = classOf(Character.toLowerCase(keyword.charAt(i)), asciiClass, extraChars, extraBase);
+                Integer next = goTo.get(state).get(cls);
+                if (next == null) {
+                    next = goTo.size();
+                    goTo.add(new HashMap<>());
+                    output.add(-1);
+                    goTo.get(state).put(cls, next);
+                }
+                state = next;
+            }
+            output.set(state, better(rules, output.get(state), r));
+        }
+
+        // Breadth-first pass: resolve failure links into a full DFA and merge outputs
+        int stateCount = goTo.size();
+        int[] transitions = new int[stateCount * alphabetSize];
+        int[] bestRule = new int[stateCount];
+        int[] failure = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            bestRule[s] = output.get(s);
+        }
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            Integer next = goTo.get(ROOT).get(cls);
+            if (next != null) {
+                transitions[cls] = next;
+                failure[next] = ROOT;
+                queue.add(next);
+            } else {
+                transitions[cls] = ROOT;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            bestRule[state] = better(rules, bestRule[state], bestRule[failure[state]]);
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                Integer next = goTo.get(state).get(cls);
+                int fallback = transitions[failure[state] * alphabetSize + cls];
+                if (next != null) {
+                    transitions[state * alphabetSize + cls] = next;
+                    failure[next] = fallback;
+                    queue.add(next);
+                } else {
+                    transitions[state * alphabetSize + cls] = fallback;
+                }
+            }
+        }
+
+        return new UrgencyMatcher(rules, asciiClass, extraChars, alphabetSize, foldedChars, foldedClasses,
+                transitions, bestRule);
+    }
+
+    /**
+     * Returns the result of the best matching rule, or null if no keyword occurs.
+     */
+    public UrgencyResult match(CharSequence content) {
+        int[] delta = transitions;
+        int width = alphabetSize;
+        int state = ROOT;
+        int best = -1;
+        for (int i = 0, n = content.length(); i < n; i++) {
+            char c = content.charAt(i);
+            int cls;
+            if (c < 128) {
+                cls = asciiClass[c];
+            } else {
+                int fold = foldedChars.length == 0 ? -1 : Arrays.binarySearch(foldedChars, c);
+                if (fold >= 0) {
+                    // Lower-cases to several chars (or to another one), each a step
+                    for (int foldedClass : foldedClasses[fold]) {
+                        state = delta[state * width + foldedClass];
+                        int hit = bestRule[state];
+                        if (hit >= 0 && hit != best) {
+                            best = better(rules, best, hit);
+                        }
+                    }
+                    continue;
+                }
+                cls = nonAsciiClass(c);
+            }
+            state = delta[state * width + cls];
+            int hit = bestRule[state];
+            if (hit >= 0 && hit != best) {
+                best = better(rules, best, hit);
+            }
+        }
+        return best < 0 ? null : results[best];
+    }
+
+    public List<Rule> getRules() {
+        return List.of(rules);
+    }
+
+    private int nonAsciiClass(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower < 128) {
+            return asciiClass[lower];
+        }
+        if (extraChars.length == 0) {
+            return 0;
+        }
+        int idx = Arrays.binarySearch(extraChars, lower);
+        return idx < 0 ? 0 : alphabetSize - extraChars.length + idx;
+    }
+
+    private static int classOf(char c, int[] asciiClass, char[] extraChars, int extraBase) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int idx = Arrays.binarySearch(extraChars, c);
+        return idx < 0 ? 0 : extraBase + idx;
+    }
+
+    /**
+     * Pick the preferred of two rule indexes: higher score wins, then lower index.
+     */
+    private static int better(Rule[] rules, int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        int scoreA = rules[a].getScore();
+        int scoreB = rules[b].getScore();
+        if (scoreA != scoreB) {
+            return scoreA > scoreB ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    /**
+     * A single urgency rule: keyword to match and the result it produces.
+     */
+    public static class Rule {
+        private final String keyword;
+        private final UrgencyLevel level;
+        private final int score;
+        private final String reason;
+
+        public Rule(String keyword, UrgencyLevel level, int score, String reason) {
+            this.keyword = keyword;
+            this.level = level;
+            this.score = score;
+            this.reason = reason;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public UrgencyLevel getLevel() {
+            return level;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
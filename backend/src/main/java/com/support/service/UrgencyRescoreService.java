@@ -0,0 +1,419 @@
+package com.support.service;
+
+import com.support.model.Conversation;
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.JobCheckpoint;
+import com.support.model.JobCheckpoint.JobStatus;
+import com.support.repository.ConversationRepository;
+import com.support.repository.JobCheckpointRepository;
+import com.support.repository.MessageRepository;
+import com.support.service.UrgencyDetectionService.UrgencyResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Background job that re-scores open conversations after the urgency rules change.
+ * Walks conversations in keyset-paged chunks by id, re-scores each customer message
+ * history and writes back only the rows whose urgency changed, in one short
+ * transaction per chunk. Progress is checkpointed so the job resumes after a restart.
+ * <p>
+ * Live messages raise a conversation's urgency while the job runs. A row is only
+ * written if its score is still the one the chunk loaded; rows that were raised
+ * in between are scored again from their current messages.
+ */
+@Service
+public class UrgencyRescoreService {
+
+    static final String JOB_NAME = "urgency-rescore";
+
+    private static final List<ConversationStatus> OPEN_STATUSES = Arrays.asList(
+            ConversationStatus.OPEN,
+            ConversationStatus.IN_PROGRESS,
+            ConversationStatus.WAITING
+    );
+
+    // Compare-and-set on the score loaded with the chunk
+    private static final String UPDATE_URGENCY_SQL =
+            "UPDATE conversations SET urgency_score = ?, urgency_level = ?, urgency_reason = ? " +
+            "WHERE id = ? AND COALESCE(urgency_score, 0) = ?";
+
+    // Times a chunk's conversations that changed under it are scored and written again
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final UrgencyDetectionService urgencyDetectionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final OpenConversationQueue openConversationQueue;
+    private final DashboardCounters dashboardCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "urgency-rescore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.urgency.rescore.chunk-size:200}")
+    private int chunkSize;
+
+    // Pause between chunks so the job never competes with live traffic
+    @Value("${app.urgency.rescore.throttle-ms:50}")
+    private long throttleMs;
+
+    private volatile Progress progress = Progress.idle();
+
+    public UrgencyRescoreService(ConversationRepository conversationRepository,
+                                 MessageRepository messageRepository,
+                                 JobCheckpointRepository checkpointRepository,
+                                 UrgencyDetectionService urgencyDetectionService,
+                                 JdbcTemplate jdbcTemplate,
+                                 OpenConversationQueue openConversationQueue,
+                                 DashboardCounters dashboardCounters,
+                                 PlatformTransactionManager transactionManager) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.urgencyDetectionService = urgencyDetectionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.openConversationQueue = openConversationQueue;
+        this.dashboardCounters = dashboardCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Resume an interrupted run after a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeIfInterrupted() {
+        Optional<JobCheckpoint> checkpoint = checkpointRepository.findById(JOB_NAME);
+        if (checkpoint.isPresent() && checkpoint.get().getStatus() == JobStatus.RUNNING) {
+            System.out.println("Resuming urgency re-scoring after " + checkpoint.get().getPosition());
+            start();
+        }
+    }
+
+    /**
+     * Start a re-scoring run in the background. Resumes from the last checkpoint if
+     * the previous run did not finish. No-op if a run is already in progress.
+     */
+    public synchronized Progress start() {
+        if (progress.isRunning()) {
+            return progress;
+        }
+
+        JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .filter(c -> c.getStatus() == JobStatus.RUNNING)
+                .orElseGet(() -> JobCheckpoint.builder().jobName(JOB_NAME).build());
+        checkpoint.setStatus(JobStatus.RUNNING);
+        checkpointRepository.save(checkpoint);
+
+        long total = conversationRepository.countByStatusIn(OPEN_STATUSES);
+        progress = new Progress(JobStatus.RUNNING, checkpoint.getProcessed(), checkpoint.getUpdated(), total,
+                checkpoint.getPosition(), urgencyDetectionService.getRuleSet().getVersion(),
+                LocalDateTime.now(), null, null);
+        executor.submit(() -> run(checkpoint.getPosition()));
+        return progress;
+    }
+
+    /**
+     * Current progress of the running or last run
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    private void run(String startAfter) {
+        UUID afterId = startAfter != null ? UUID.fromString(startAfter) : null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Chunk chunk = loadChunk(afterId);
+                if (chunk.conversationIds.isEmpty()) {
+                    break;
+                }
+
+                afterId = chunk.conversationIds.get(chunk.conversationIds.size() - 1);
+                int updated = saveChunk(chunk, afterId);
+
+                Progress p = progress;
+                progress = p.advance(chunk.conversationIds.size(), updated, afterId.toString());
+
+                if (throttleMs > 0) {
+                    Thread.sleep(throttleMs);
+                }
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                finish(JobStatus.COMPLETED, null);
+                System.out.println("Urgency re-scoring complete: " + progress.getUpdated()
+                        + " of " + progress.getProcessed() + " conversations changed");
+            }
+        } catch (InterruptedException e) {
+            // Shutting down; the checkpoint stays RUNNING so the next start resumes
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                return; // interrupted mid-chunk by shutdown; resume from the checkpoint
+            }
+            System.out.println("Urgency re-scoring failed: " + e.getMessage());
+            finish(JobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Read one keyset page of open conversations and their customer messages,
+     * and compute the new urgency for each (read-only transaction).
+     */
+    private Chunk loadChunk(UUID afterId) {
+        return readOnlyTransactionTemplate.execute(status -> {
+            List<Conversation> conversations = conversationRepository.findByStatusAfterId(
+                    OPEN_STATUSES, afterId, PageRequest.of(0, chunkSize));
+            return score(conversations);
+        });
+    }
+
+    /**
+     * Compute the new urgency for each of the conversations from their customer messages
+     */
+    private Chunk score(List<Conversation> conversations) {
+        Chunk chunk = new Chunk();
+        if (conversations.isEmpty()) {
+            return chunk;
+        }
+        for (Conversation conv : conversations) {
+            chunk.conversationIds.add(conv.getId());
+        }
+
+        // Message history for the whole chunk in one query, scored in one batch
+        List<Object[]> rows = messageRepository.findCustomerContentByConversationIds(chunk.conversationIds);
+        List<String> contents = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            contents.add((String) row[1]);
+        }
+        List<UrgencyResult> scores = urgencyDetectionService.analyzeUrgencyBatch(contents);
+
+        // Same rule as live traffic: the earliest message with the highest score wins
+        Map<UUID, UrgencyResult> best = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            UUID conversationId = (UUID) rows.get(i)[0];
+            UrgencyResult current = best.get(conversationId);
+            if (current == null || scores.get(i).getScore() > current.getScore()) {
+                best.put(conversationId, scores.get(i));
+            }
+        }
+
+        for (Conversation conv : conversations) {
+            UrgencyResult result = best.get(conv.getId());
+            if (result != null && isChanged(conv, result)) {
+                chunk.changes.put(conv.getId(), result);
+                chunk.loadedScores.put(conv.getId(), conv.getUrgencyScore() != null ? conv.getUrgencyScore() : 0);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Batch-update changed conversations and advance the checkpoint atomically.
+     * Conversations whose score changed since the chunk was loaded are scored and
+     * written again, up to {@link #WRITE_ATTEMPTS} times; after that they are left
+     * to the live writes.
+     *
+     * @return number of conversations written
+     */
+    private int saveChunk(Chunk chunk, UUID lastId) {
+        Integer updated = transactionTemplate.execute(status -> {
+            Set<UUID> written = new LinkedHashSet<>();
+            List<UUID> missed = writeChanges(chunk, written);
+            for (int attempt = 1; attempt < WRITE_ATTEMPTS && !missed.isEmpty(); attempt++) {
+                List<Conversation> current = new ArrayList<>();
+                for (Conversation conv : conversationRepository.findAllById(missed)) {
+                    if (OPEN_STATUSES.contains(conv.getStatus())) {
+                        current.add(conv);
+                    }
+                }
+                missed = writeChanges(score(current), written);
+            }
+            if (!missed.isEmpty()) {
+                System.out.println("Urgency re-scoring skipped " + missed.size()
+                        + " conversations that kept changing meanwhile");
+            }
+            if (!written.isEmpty()) {
+                openConversationQueue.reloadAfterCommit(written);
+            }
+
+            JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                    .orElseGet(() -> JobCheckpoint.builder().jobName(JOB_NAME).build());
+            checkpoint.setPosition(lastId.toString());
+            checkpoint.setProcessed(checkpoint.getProcessed() + chunk.conversationIds.size());
+            checkpoint.setUpdated(checkpoint.getUpdated() + written.size());
+            checkpointRepository.save(checkpoint);
+            return written.size();
+        });
+        return updated != null ? updated : 0;
+    }
+
+    /**
+     * Write the chunk's changes where the score is still the loaded one
+     *
+     * @param written collects the conversations written
+     * @return the conversations whose score had changed, left unwritten
+     */
+    private List<UUID> writeChanges(Chunk chunk, Set<UUID> written) {
+        if (chunk.changes.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> ids = new ArrayList<>(chunk.changes.size());
+        List<Object[]> args = new ArrayList<>(chunk.changes.size());
+        for (Map.Entry<UUID, UrgencyResult> change : chunk.changes.entrySet()) {
+            UrgencyResult result = change.getValue();
+            ids.add(change.getKey());
+            args.add(new Object[]{
+                    result.getScore(), result.getLevel().name(), result.getReason(), change.getKey(),
+                    chunk.loadedScores.get(change.getKey())
+            });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_URGENCY_SQL, args);
+        List<UUID> missed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                missed.add(ids.get(i));
+            } else {
+                written.add(ids.get(i));
+            }
+        }
+        return missed;
+    }
+
+    private void finish(JobStatus status, String error) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                    .orElseGet(() -> JobCheckpoint.builder().jobName(JOB_NAME).build());
+            checkpoint.setStatus(status);
+            if (status == JobStatus.COMPLETED) {
+                checkpoint.setPosition(null);
+            }
+            checkpointRepository.save(checkpoint);
+        });
+        progress = progress.finish(status, error);
+        // Levels are updated in SQL, so the urgent count is recounted
+        dashboardCounters.reconcile();
+    }
+
+    private boolean isChanged(Conversation conv, UrgencyResult result) {
+        return !Objects.equals(conv.getUrgencyScore(), result.getScore())
+                || conv.getUrgencyLevel() != result.getLevel()
+                || !Objects.equals(conv.getUrgencyReason(), result.getReason());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Conversations read in one chunk and the new urgency for those that changed,
+     * with the score each of those had when read
+     */
+    private static class Chunk {
+        private final List<UUID> conversationIds = new ArrayList<>();
+        private final Map<UUID, UrgencyResult> changes = new LinkedHashMap<>();
+        private final Map<UUID, Integer> loadedScores = new HashMap<>();
+    }
+
+    /**
+     * Immutable progress snapshot of a re-scoring run.
+     */
+    public static class Progress {
+        private final JobStatus status;
+        private final long processed;
+        private final long updated;
+        private final long total;
+        private final String lastId;
+        private final long ruleSetVersion;
+        private final LocalDateTime startedAt;
+        private final LocalDateTime finishedAt;
+        private final String error;
+
+        public Progress(JobStatus status, long processed, long updated, long total, String lastId,
+                        long ruleSetVersion, LocalDateTime startedAt, LocalDateTime finishedAt, String error) {
+            this.status = status;
+            this.processed = processed;
+            this.updated = updated;
+            this.total = total;
+            this.lastId = lastId;
+            this.ruleSetVersion = ruleSetVersion;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
+            this.error = error;
+        }
+
+        static Progress idle() {
+            return new Progress(null, 0, 0, 0, null, 0, null, null, null);
+        }
+
+        Progress advance(int processedDelta, int updatedDelta, String newLastId) {
+            return new Progress(status, processed + processedDelta, updated + updatedDelta, total,
+                    newLastId, ruleSetVersion, startedAt, null, null);
+        }
+
+        Progress finish(JobStatus newStatus, String newError) {
+            return new Progress(newStatus, processed, updated, total, lastId, ruleSetVersion,
+                    startedAt, LocalDateTime.now(), newError);
+        }
+
+        public boolean isRunning() {
+            return status == JobStatus.RUNNING;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public String getLastId() {
+            return lastId;
+        }
+
+        public long getRuleSetVersion() {
+            return ruleSetVersion;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public LocalDateTime getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.support.repository;
+
+import com.support.dto.ConversationDTO;
+import com.support.dto.ConversationSummary;
+import com.support.model.Agent;
+import com.support.model.Conversation;
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Conversation.UrgencyLevel;
+import com.support.model.Customer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conversation list queries load customer and agent in the same statement, so
+ * mapping a page to ConversationDTOs runs one select (plus the count of a page).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ConversationRepositoryTest {
+
+    private static final List<ConversationStatus> OPEN = List.of(
+            ConversationStatus.OPEN, ConversationStatus.IN_PROGRESS, ConversationStatus.WAITING);
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Conversation> conversations = new ArrayList<>();
+    private Agent agent;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        agent = entityManager.persist(agent("Agent One"));
+        Agent otherAgent = entityManager.persist(agent("Agent Two"));
+        LocalDateTime now = LocalDateTime.now();
+        // Every conversation has its own customer, and all but the unassigned ones an agent,
+        // so a lazy association per row would show up as extra statements
+        for (int i = 0; i < 6; i++) {
+            Customer customer = entityManager.persist(Customer.builder()
+                    .name("Customer " + i)
+                    .email("customer" + i + "@example.com")
+                    .build());
+            conversations.add(entityManager.persist(Conversation.builder()
+                    .customer(customer)
+                    .assignedAgent(i < 2 ? null : (i % 2 == 0 ? agent : otherAgent))
+                    .subject("Subject " + i)
+                    .status(i == 5 ? ConversationStatus.IN_PROGRESS : ConversationStatus.OPEN)
+                    .urgencyScore(i * 10)
+                    .urgencyLevel(UrgencyLevel.LOW)
+                    .lastMessageAt(now.minusMinutes(i))
+                    .build()));
+        }
+        entityManager.flush();
+        // Start from an empty persistence context, as a request does
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findAllRunsOneSelect() {
+        assertStatements(1, () -> toDtos(conversationRepository.findAll()));
+    }
+
+    @Test
+    void findByCustomerIdRunsOneSelect() {
+        UUID customerId = conversations.get(3).getCustomer().getId();
+        assertStatements(1, () -> toDtos(conversationRepository.findByCustomerId(customerId)));
+    }
+
+    @Test
+    void findOpenConversationsOrderByUrgencyRunsOneSelect() {
+        assertStatements(1, () -> toDtos(conversationRepository.findOpenConversationsOrderByUrgency(OPEN)));
+    }
+
+    @Test
+    void findUnassignedConversationsRunsOneSelect() {
+        assertStatements(1, () -> toDtos(conversationRepository.findUnassignedConversations()));
+    }
+
+    @Test
+    void findActiveConversationsByAgentRunsOneSelect() {
+        assertStatements(1, () -> toDtos(conversationRepository.findActiveConversationsByAgent(agent.getId())));
+    }
+
+    @Test
+    void findWithFiltersRunsOneSelectAndTheCount() {
+        // Page smaller than the result, so the count query runs
+        assertStatements(2, () -> toDtos(conversationRepository.findWithFilters(
+                null, null, null, PageRequest.of(0, 4)).getContent()));
+    }
+
+    @Test
+    void keysetPagesRunOneSelectEach() {
+        List<ConversationDTO> first = assertStatements(1, () -> toDtos(conversationRepository.findWithFiltersFirst(
+                null, null, null, PageRequest.of(0, 3))));
+        ConversationDTO last = first.get(first.size() - 1);
+        List<ConversationDTO> next = assertStatements(1, () -> toDtos(conversationRepository.findWithFiltersAfter(
+                null, null, null, last.getUrgencyScore(), last.getLastMessageAt(), last.getId(),
+                PageRequest.of(0, 3))));
+        assertThat(next).hasSize(3);
+    }
+
+    @Test
+    void summaryListingsRunOneSelect() {
+        assertStatements(1, () -> conversationRepository.findOpenSummariesOrderByUrgency(OPEN));
+        assertStatements(1, () -> conversationRepository.findUnassignedSummaries());
+        Page<ConversationSummary> page = assertStatements(2, () -> conversationRepository.findSummariesWithFilters(
+                null, null, null, PageRequest.of(0, 4)));
+        assertThat(page.getTotalElements()).isEqualTo(6L);
+    }
+
+    @Test
+    void queueLoadsRunOneSelect() {
+        List<UUID> ids = conversations.stream().map(Conversation::getId).toList();
+        assertStatements(1, () -> toDtos(conversationRepository.findAllByIdWithParticipants(ids)));
+        assertStatements(1, () -> toDtos(conversationRepository.findByStatusAfterIdWithParticipants(
+                OPEN, null, PageRequest.of(0, 10))));
+    }
+
+    private <T> T assertStatements(long expected, Supplier<T> listing) {
+        entityManager.clear();
+        statistics.clear();
+        T result = listing.get();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+        return result;
+    }
+
+    // Reads customer and agent of every row, as the list endpoints do
+    private static List<ConversationDTO> toDtos(List<Conversation> page) {
+        return page.stream().map(ConversationDTO::fromEntity).toList();
+    }
+
+    private static Agent agent(String name) {
+        return Agent.builder()
+                .name(name)
+                .email(name.toLowerCase().replace(' ', '.') + "@support.com")
+                .build();
+    }
+}
@@ -0,0 +1,271 @@
+package com.support.repository;
+
+import com.support.model.Conversation;
+import com.support.model.Conversation.ConversationStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency of the hot listing and history queries with the schema's idx_* indexes,
+ * then with them dropped, over a generated data set (1.2M messages by default).
+ * <p>
+ * Not part of the normal test run (surefire only picks up *Test classes). Run it with
+ * <pre>
+ * mvn test -Dtest=QueryIndexBenchmark [-Dbenchmark.messages=1200000] [-Dbenchmark.iterations=50]
+ * </pre>
+ * It uses the configured datasource (in-memory H2 by default). To measure PostgreSQL add
+ * -Dspring.profiles.active=prod and -Dspring.datasource.url=... pointing at a SCRATCH
+ * database: the schema is dropped and re-created.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Seeding and each timed query run in their own transactions
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueryIndexBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 1_200_000);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 50);
+    private static final int WARMUP = Math.max(1, ITERATIONS / 5);
+    private static final int MESSAGES_PER_CONVERSATION = 12;
+    private static final int CONVERSATIONS_PER_CUSTOMER = 2;
+    private static final int AGENTS = 20;
+    private static final int BATCH = 5_000;
+    private static final int PAGE = 50;
+
+    private static final String[] STATUSES = {"OPEN", "OPEN", "IN_PROGRESS", "WAITING", "RESOLVED", "CLOSED"};
+    private static final String[] LEVELS = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final Random random = new Random(42);
+
+    private final List<UUID> agentIds = new ArrayList<>();
+    private final List<UUID> conversationIds = new ArrayList<>();
+    private final List<String> phones = new ArrayList<>();
+
+    @Test
+    void queryLatencyWithAndWithoutIndexes() throws SQLException {
+        seed();
+
+        Map<String, double[]> withIndexes = timeQueries();
+        List<String> dropped = dropIndexes();
+        Map<String, double[]> withoutIndexes = timeQueries();
+
+        System.out.printf(Locale.ROOT, "%nQuery latency, %d messages, %d iterations (ms)%n",
+                MESSAGES, ITERATIONS);
+        System.out.printf(Locale.ROOT, "Dropped: %s%n", dropped);
+        System.out.printf(Locale.ROOT, "%-36s %12s %12s %12s %12s%n",
+                "query", "idx median", "idx p95", "no-idx median", "no-idx p95");
+        for (String query : withIndexes.keySet()) {
+            double[] before = withoutIndexes.get(query);
+            double[] after = withIndexes.get(query);
+            System.out.printf(Locale.ROOT, "%-36s %12.3f %12.3f %12.3f %12.3f%n",
+                    query, after[0], after[1], before[0], before[1]);
+        }
+        assertThat(dropped).isNotEmpty();
+    }
+
+    /**
+     * Customers, agents, conversations spread over statuses, levels and agents, and
+     * their messages, written with JDBC batches. Timestamps are spread over a year.
+     */
+    private void seed() {
+        int conversations = Math.max(1, MESSAGES / MESSAGES_PER_CONVERSATION);
+        int customers = Math.max(1, conversations / CONVERSATIONS_PER_CUSTOMER);
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+
+        List<Object[]> batch = new ArrayList<>();
+        for (int a = 0; a < AGENTS; a++) {
+            UUID id = UUID.randomUUID();
+            agentIds.add(id);
+            batch.add(new Object[]{id, "Agent " + a, "agent" + a + "@bench.local", "ONLINE", 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO agents (id, name, email, status, active_conversations) " +
+                "VALUES (?, ?, ?, ?, ?)", batch);
+        batch.clear();
+
+        String customerSql = "INSERT INTO customers (id, name, email, phone, total_conversations, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        List<UUID> customerIds = new ArrayList<>(customers);
+        for (int c = 0; c < customers; c++) {
+            UUID id = UUID.randomUUID();
+            String phone = String.format(Locale.ROOT, "+91%010d", c);
+            customerIds.add(id);
+            phones.add(phone);
+            batch.add(new Object[]{id, "Customer " + c, "customer" + c + "@bench.local", phone, 0,
+                    Timestamp.valueOf(start)});
+            if (batch.size() >= BATCH) {
+                flush(batch, customerSql);
+            }
+        }
+        flush(batch, customerSql);
+
+        String conversationSql = "INSERT INTO conversations (id, customer_id, assigned_agent_id, subject, status, " +
+                "urgency_score, urgency_level, unread_count, last_message_at, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String messageSql = "INSERT INTO messages (id, conversation_id, sender_type, sender_name, content, " +
+                "is_read, is_canned_response, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> messages = new ArrayList<>();
+        int written = 0;
+        for (int c = 0; c < conversations; c++) {
+            UUID id = UUID.randomUUID();
+            conversationIds.add(id);
+            LocalDateTime createdAt = start.plusSeconds(random.nextInt(365 * 24 * 3600));
+            int count = c == conversations - 1 ? MESSAGES - written : MESSAGES_PER_CONVERSATION;
+            LocalDateTime messageAt = createdAt;
+            for (int m = 0; m < count; m++) {
+                messageAt = messageAt.plusSeconds(1 + random.nextInt(3600));
+                boolean customer = m % 2 == 0;
+                messages.add(new Object[]{UUID.randomUUID(), id, customer ? "CUSTOMER" : "AGENT",
+                        customer ? "Customer" : "Agent", "Message " + m + " about loan payment " + c,
+                        !customer || random.nextBoolean(), false, Timestamp.valueOf(messageAt)});
+            }
+            written += count;
+            UUID agentId = random.nextInt(4) == 0 ? null : agentIds.get(random.nextInt(AGENTS));
+            batch.add(new Object[]{id, customerIds.get(c % customers), agentId, "Conversation " + c,
+                    STATUSES[random.nextInt(STATUSES.length)], random.nextInt(101),
+                    LEVELS[random.nextInt(LEVELS.length)], 0, Timestamp.valueOf(messageAt),
+                    Timestamp.valueOf(createdAt), Timestamp.valueOf(messageAt)});
+            // Conversations go in before their messages (foreign key)
+            if (batch.size() >= BATCH) {
+                flush(batch, conversationSql);
+                flush(messages, messageSql);
+            }
+        }
+        flush(batch, conversationSql);
+        flush(messages, messageSql);
+
+        // Fresh statistics, so the planner sees the data set as a long-running database would
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private void flush(List<Object[]> batch, String sql) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Median and p95 latency of each query, in milliseconds, over random conversations,
+     * agents and customers.
+     */
+    private Map<String, double[]> timeQueries() {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        results.put("listing: open, first page", time(() ->
+                conversationRepository.findWithFiltersFirst(ConversationStatus.OPEN, null, null,
+                        PageRequest.of(0, PAGE))));
+        results.put("listing: open, next page", time(() -> {
+            List<Conversation> first = conversationRepository.findWithFiltersFirst(
+                    ConversationStatus.OPEN, null, null, PageRequest.of(0, PAGE));
+            Conversation last = first.get(first.size() - 1);
+            return conversationRepository.findWithFiltersAfter(ConversationStatus.OPEN, null, null,
+                    last.getUrgencyScore(), last.getLastMessageAt(), last.getId(), PageRequest.of(0, PAGE));
+        }));
+        results.put("listing: agent, first page", time(() ->
+                conversationRepository.findWithFiltersFirst(null, null, randomAgent(),
+                        PageRequest.of(0, PAGE))));
+        results.put("history: latest page", time(() ->
+                messageRepository.findLatestInConversation(randomConversation(), PageRequest.of(0, PAGE))));
+        results.put("history: whole conversation", time(() ->
+                messageRepository.findByConversationIdOrderByCreatedAtAsc(randomConversation())));
+        results.put("unread count", time(() ->
+                messageRepository.countUnreadMessages(randomConversation())));
+        results.put("customer by phone", time(() ->
+                customerRepository.findByPhone(phones.get(random.nextInt(phones.size())))));
+        return results;
+    }
+
+    private double[] time(Query query) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) {
+            sink = query.run();
+        }
+        double[] millis = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            sink = query.run();
+            millis[i] = (System.nanoTime() - started) / 1_000_000.0;
+        }
+        assertThat(sink).isNotNull();
+        Arrays.sort(millis);
+        return new double[]{millis[ITERATIONS / 2], millis[Math.min(ITERATIONS - 1, ITERATIONS * 95 / 100)]};
+    }
+
+    private UUID randomConversation() {
+        return conversationIds.get(random.nextInt(conversationIds.size()));
+    }
+
+    private UUID randomAgent() {
+        return agentIds.get(random.nextInt(agentIds.size()));
+    }
+
+    /**
+     * Drops the schema's idx_* indexes (not the primary keys or unique constraints).
+     */
+    private List<String> dropIndexes() throws SQLException {
+        TreeSet<String> names = new TreeSet<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : List.of("conversations", "messages", "customers")) {
+                String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+                try (ResultSet rows = metaData.getIndexInfo(null, null, name, false, false)) {
+                    while (rows.next()) {
+                        String index = rows.getString("INDEX_NAME");
+                        if (index != null && index.toLowerCase(Locale.ROOT).startsWith("idx_")) {
+                            names.add(index);
+                        }
+                    }
+                }
+            }
+        }
+        for (String index : names) {
+            jdbcTemplate.execute("DROP INDEX " + index);
+        }
+        jdbcTemplate.execute("ANALYZE");
+        return new ArrayList<>(names);
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        Object run();
+    }
+}
@@ -0,0 +1,122 @@
+package com.support.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The generated schema has an index for each hot query shape, with the
+ * filter columns first and then the columns the query orders and seeks by.
+ */
+@DataJpaTest
+class QueryIndexTest {
+
+    // Order and keyset seek of the conversation listings (findWithFiltersFirst/After)
+    private static final List<String> LISTING_ORDER = List.of("urgency_score", "last_message_at", "id");
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Map<String, List<String>> indexes;
+
+    @BeforeEach
+    void loadIndexes() throws SQLException {
+        indexes = new TreeMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : List.of("conversations", "messages", "customers")) {
+                String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+                try (ResultSet rows = metaData.getIndexInfo(null, null, name, false, false)) {
+                    while (rows.next()) {
+                        String index = rows.getString("INDEX_NAME");
+                        String column = rows.getString("COLUMN_NAME");
+                        if (index == null || column == null) {
+                            continue;
+                        }
+                        List<String> columns = indexes.computeIfAbsent(
+                                table + "." + index.toLowerCase(Locale.ROOT), key -> new ArrayList<>());
+                        int position = rows.getInt("ORDINAL_POSITION");
+                        while (columns.size() < position) {
+                            columns.add(null);
+                        }
+                        columns.set(position - 1, column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void unfilteredListing() {
+        assertIndexStartsWith("conversations", LISTING_ORDER);
+    }
+
+    @Test
+    void listingFilteredByStatus() {
+        assertIndexStartsWith("conversations", listing("status"));
+    }
+
+    @Test
+    void listingFilteredByAgent() {
+        assertIndexStartsWith("conversations", listing("assigned_agent_id"));
+    }
+
+    @Test
+    void listingFilteredByUrgencyLevel() {
+        assertIndexStartsWith("conversations", listing("urgency_level"));
+    }
+
+    @Test
+    void activeConversationsByAgent() {
+        assertIndexStartsWith("conversations", List.of("assigned_agent_id", "status"));
+    }
+
+    @Test
+    void conversationsByCustomer() {
+        assertIndexStartsWith("conversations", List.of("customer_id"));
+    }
+
+    @Test
+    void conversationHistoryAndUnreadCount() {
+        assertIndexStartsWith("messages", List.of("conversation_id", "created_at", "id"));
+    }
+
+    @Test
+    void recentMessages() {
+        assertIndexStartsWith("messages", List.of("created_at", "id"));
+    }
+
+    @Test
+    void customerLookupByPhone() {
+        assertIndexStartsWith("customers", List.of("phone"));
+    }
+
+    private static List<String> listing(String filterColumn) {
+        List<String> columns = new ArrayList<>();
+        columns.add(filterColumn);
+        columns.addAll(LISTING_ORDER);
+        return columns;
+    }
+
+    private void assertIndexStartsWith(String table, List<String> columns) {
+        boolean found = indexes.entrySet().stream()
+                .anyMatch(index -> index.getKey().startsWith(table + ".")
+                        && index.getValue().size() >= columns.size()
+                        && index.getValue().subList(0, columns.size()).equals(columns));
+        assertThat(found).as("index on %s starting with %s in %s", table, columns, indexes).isTrue();
+    }
+}
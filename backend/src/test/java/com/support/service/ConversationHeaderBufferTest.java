@@ -0,0 +1,152 @@
+package com.support.service;
+
+import com.support.model.Conversation;
+import com.support.model.Customer;
+import com.support.model.Message;
+import com.support.model.Message.SenderType;
+import com.support.repository.ConversationRepository;
+import com.support.repository.CustomerRepository;
+import com.support.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The read watermark decides which messages are unread; the stored unread count
+ * is recounted from it when a flush carries a read, and otherwise grows by the
+ * messages flushed.
+ */
+@DataJpaTest
+@Import(ConversationHeaderBuffer.class)
+// The buffer flushes in its own transaction, so the rows must be committed first
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationHeaderBufferTest {
+
+    @Autowired
+    private ConversationHeaderBuffer buffer;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @AfterEach
+    void cleanUp() {
+        messageRepository.deleteAll();
+        conversationRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void flushCountsCustomerMessagesWithoutWatermark() {
+        Conversation conversation = conversation(0);
+        message(conversation, SenderType.CUSTOMER, false);
+        Message latest = message(conversation, SenderType.CUSTOMER, false);
+        message(conversation, SenderType.AGENT, true);
+        buffer.customerMessagesAfterCommit(conversation.getId(), latest.getCreatedAt(), "latest", 2);
+
+        buffer.flush();
+
+        assertThat(storedUnreadCount(conversation.getId())).isEqualTo(2);
+        assertThat(storedUnreadCount(conversation.getId()))
+                .isEqualTo(messageRepository.countUnreadMessages(conversation.getId()));
+    }
+
+    @Test
+    void flushWithoutReadAddsToTheStoredCount() {
+        // Not recounted: the stored count is taken as correct and the new message added to it
+        Conversation conversation = conversation(7);
+        Message latest = message(conversation, SenderType.CUSTOMER, false);
+        buffer.customerMessageAfterCommit(conversation.getId(), latest.getCreatedAt(), "latest");
+
+        buffer.flush();
+
+        assertThat(storedUnreadCount(conversation.getId())).isEqualTo(8);
+    }
+
+    @Test
+    void flushRecountsFromTheWatermarkInsteadOfAddingToTheStoredCount() {
+        // Stored count disagrees with the messages, as a lost or doubled increment would leave it
+        Conversation conversation = conversation(7);
+        Message read = message(conversation, SenderType.CUSTOMER, false);
+        Message unread = message(conversation, SenderType.CUSTOMER, false);
+        buffer.markReadAfterCommit(conversation.getId(), read.getCreatedAt());
+        buffer.customerMessageAfterCommit(conversation.getId(), unread.getCreatedAt(), "unread");
+
+        buffer.flush();
+
+        assertThat(conversationRepository.findById(conversation.getId()).orElseThrow().getLastReadAt())
+                .isEqualTo(read.getCreatedAt());
+        assertThat(storedUnreadCount(conversation.getId()))
+                .isEqualTo(messageRepository.countUnreadMessages(conversation.getId()));
+    }
+
+    @Test
+    void flushAfterReadingEverythingLeavesNothingUnread() {
+        Conversation conversation = conversation(0);
+        message(conversation, SenderType.CUSTOMER, false);
+        Message latest = message(conversation, SenderType.CUSTOMER, false);
+        buffer.customerMessagesAfterCommit(conversation.getId(), latest.getCreatedAt(), "latest", 2);
+        buffer.flush();
+
+        buffer.markReadAfterCommit(conversation.getId(), latest.getCreatedAt());
+        buffer.flush();
+
+        assertThat(storedUnreadCount(conversation.getId())).isZero();
+        assertThat(messageRepository.countUnreadMessages(conversation.getId())).isZero();
+    }
+
+    @Test
+    void olderWatermarkDoesNotMoveTheStoredOneBack() {
+        Conversation conversation = conversation(0);
+        Message first = message(conversation, SenderType.CUSTOMER, false);
+        Message second = message(conversation, SenderType.CUSTOMER, false);
+        buffer.markReadAfterCommit(conversation.getId(), second.getCreatedAt());
+        buffer.flush();
+
+        buffer.markReadAfterCommit(conversation.getId(), first.getCreatedAt().minusSeconds(1));
+        buffer.flush();
+
+        assertThat(conversationRepository.findById(conversation.getId()).orElseThrow().getLastReadAt())
+                .isEqualTo(second.getCreatedAt());
+        assertThat(storedUnreadCount(conversation.getId())).isZero();
+    }
+
+    private Conversation conversation(int unreadCount) {
+        Customer customer = customerRepository.save(Customer.builder()
+                .name("Customer " + UUID.randomUUID())
+                .build());
+        return conversationRepository.save(Conversation.builder()
+                .customer(customer)
+                .subject("Loan status")
+                .unreadCount(unreadCount)
+                .lastMessageAt(LocalDateTime.now().minusDays(1))
+                .build());
+    }
+
+    private Message message(Conversation conversation, SenderType senderType, boolean read) {
+        return messageRepository.save(Message.builder()
+                .conversation(conversation)
+                .senderType(senderType)
+                .content("Any update on my loan?")
+                .isRead(read)
+                .build());
+    }
+
+    private int storedUnreadCount(UUID conversationId) {
+        return conversationRepository.findById(conversationId).orElseThrow().getUnreadCount();
+    }
+}
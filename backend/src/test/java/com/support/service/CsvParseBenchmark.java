@@ -0,0 +1,129 @@
+package com.support.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parse throughput of the memory-mapped parser, on one thread and on every core,
+ * against the OpenCSV reader, over a generated messages file.
+ * <p>
+ * Not part of the normal test run (surefire only picks up *Test classes). Run it with
+ * <pre>
+ * mvn test -Dtest=CsvParseBenchmark [-Dbenchmark.csv-mb=256] [-Dbenchmark.rounds=3]
+ * </pre>
+ */
+class CsvParseBenchmark {
+
+    private static final int FILE_MB = Integer.getInteger("benchmark.csv-mb", 256);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 3);
+    // As app.csv.mapped-segment-mb defaults to
+    private static final long SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private static final String[] WORDS = {
+            "hello", "my", "loan", "payment", "account", "status", "please", "thanks", "approval",
+            "when", "will", "it", "be", "disbursed", "Grüße", "₹5000", "🙂"
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mappedParserAgainstOpenCsv() throws IOException {
+        Path file = messagesFile(dir.resolve("messages.csv"), new Random(42));
+        long bytes = Files.size(file);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        long[] openCsv = bestOf(() -> new OpenCsvRowSource(Files.newInputStream(file)));
+        long[] mappedOne = bestOf(() -> new MappedCsvRowSource(file, SEGMENT_SIZE, 1));
+        long[] mappedAll = bestOf(() -> new MappedCsvRowSource(file, SEGMENT_SIZE, cores));
+
+        System.out.printf(Locale.ROOT, "%nCSV parsing, %.0f MB, %d rows, best of %d rounds%n",
+                bytes / 1e6, openCsv[0], ROUNDS);
+        report("OpenCSV", openCsv, bytes);
+        report("mapped, 1 thread", mappedOne, bytes);
+        report("mapped, all " + cores + " cores", mappedAll, bytes);
+
+        assertThat(mappedOne[0]).isEqualTo(openCsv[0]);
+        assertThat(mappedAll[0]).isEqualTo(openCsv[0]);
+    }
+
+    /**
+     * Rows in the import's column layout, a few message bodies quoted with embedded
+     * commas, quotes or line breaks, written until the file reaches FILE_MB.
+     */
+    private static Path messagesFile(Path file, Random random) throws IOException {
+        long target = FILE_MB * 1024L * 1024L;
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("User ID,Timestamp (UTC),Message Body\n");
+            StringBuilder row = new StringBuilder();
+            for (int i = 0; written < target; i++) {
+                row.setLength(0);
+                row.append(random.nextInt(100_000)).append(',')
+                        .append(String.format(Locale.ROOT, "2017-02-%02d %02d:%02d:%02d,",
+                                1 + i % 28, i % 24, i % 60, (i / 60) % 60));
+                StringBuilder body = new StringBuilder();
+                int words = 3 + random.nextInt(40);
+                for (int w = 0; w < words; w++) {
+                    body.append(w > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                switch (random.nextInt(8)) {
+                    case 0 -> row.append('"').append(body).append(", \"\"quoted\"\"\"");
+                    case 1 -> row.append('"').append(body).append("\nsecond line\"");
+                    default -> row.append(body);
+                }
+                row.append('\n');
+                String text = row.toString();
+                writer.write(text);
+                // Close enough for sizing: most of the text is ASCII
+                written += text.length();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Rows read and the fastest round, in nanoseconds.
+     */
+    private static long[] bestOf(Opener opener) throws IOException {
+        long rows = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            rows = 0;
+            long chars = 0;
+            try (CsvRowSource source = opener.open()) {
+                CsvMessageRow row;
+                while ((row = source.next()) != null) {
+                    rows++;
+                    chars += row.getBody().length();
+                }
+            }
+            best = Math.min(best, System.nanoTime() - started);
+            // Keeps the fields from being optimised away
+            assertThat(chars).isGreaterThan(0);
+        }
+        return new long[]{rows, best};
+    }
+
+    private static void report(String name, long[] result, long bytes) {
+        double seconds = result[1] / 1e9;
+        System.out.printf(Locale.ROOT, "%-20s %12.0f rows/s %8.1f MB/s%n",
+                name, result[0] / seconds, bytes / seconds / 1e6);
+    }
+
+    @FunctionalInterface
+    private interface Opener {
+        CsvRowSource open() throws IOException;
+    }
+}
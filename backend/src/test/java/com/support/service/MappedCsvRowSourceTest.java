@@ -0,0 +1,142 @@
+package com.support.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The memory-mapped parser yields the same rows as the OpenCSV reader it
+ * stands in for, however the file is cut into segments.
+ */
+class MappedCsvRowSourceTest {
+
+    private static final String HEADER = "User ID,Timestamp (UTC),Message Body\n";
+
+    // From one byte (a boundary at every record) to the whole file in one segment
+    private static final long[] SEGMENT_SIZES = {1, 7, 64, 1 << 20};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void quotedFieldsWithSeparatorsAndQuotes() throws IOException {
+        assertSameRowsAsOpenCsv(HEADER
+                + "1,2017-02-01 19:29:51,\"Hi, is my loan approved?\"\n"
+                + "2,2017-02-01 19:30:00,\"She said \"\"soon\"\", twice\"\n"
+                + "\"3\",\"2017-02-01 19:31:00\",\"\"\"quoted\"\" at both ends\"\"\"\n"
+                + "4,2017-02-01 19:32:00,\"\"\n"
+                + "5,2017-02-01 19:33:00,\" padded \",extra,\"columns, too\"\n");
+    }
+
+    @Test
+    void lineBreaksInsideQuotedFields() throws IOException {
+        assertSameRowsAsOpenCsv(HEADER
+                + "1,2017-02-01 19:29:51,\"first line\nsecond line\"\n"
+                + "2,2017-02-01 19:30:00,\"windows\r\nline break\"\n"
+                + "3,2017-02-01 19:31:00,\"old mac\rline break\"\n"
+                + "4,2017-02-01 19:32:00,\"blank\n\nline\"\n"
+                + "5,2017-02-01 19:33:00,\"ends with a break\n\"\n");
+    }
+
+    @Test
+    void crlfAndLoneCrRecordEnds() throws IOException {
+        assertSameRowsAsOpenCsv("User ID,Timestamp (UTC),Message Body\r\n"
+                + "1,2017-02-01 19:29:51,crlf row\r\n"
+                + "2,2017-02-01 19:30:00,\"quoted crlf row\"\r\n"
+                + "3,2017-02-01 19:31:00,lone cr row\r"
+                + "4,2017-02-01 19:32:00,last row without a line break");
+    }
+
+    @Test
+    void backslashEscapes() throws IOException {
+        assertSameRowsAsOpenCsv(HEADER
+                + "1,2017-02-01 19:29:51,\"escaped \\\" quote\"\n"
+                + "2,2017-02-01 19:30:00,escaped \\, comma\n"
+                + "3,2017-02-01 19:31:00,\"escaped \\\\ backslash\"\n"
+                + "4,2017-02-01 19:32:00,C:\\loans\\new\n");
+    }
+
+    @Test
+    void skippedRows() throws IOException {
+        assertSameRowsAsOpenCsv(HEADER
+                + "1,2017-02-01 19:29:51\n"
+                + "\n"
+                + "2,2017-02-01 19:30:00,   \n"
+                + "3,2017-02-01 19:31:00,\" \t \"\n"
+                + "4,2017-02-01 19:32:00,kept\n");
+    }
+
+    @Test
+    void multiByteText() throws IOException {
+        assertSameRowsAsOpenCsv(HEADER
+                + "1,2017-02-01 19:29:51,\"Grüße, ₹5000 überwiesen 🙂\"\n"
+                + "2,2017-02-01 19:30:00,ऋण की स्थिति क्या है\n");
+    }
+
+    @Test
+    void generatedFilesParseAsOpenCsv() throws IOException {
+        Random random = new Random(7);
+        for (int file = 0; file < 50; file++) {
+            StringBuilder csv = new StringBuilder(HEADER);
+            int rows = 1 + random.nextInt(40);
+            for (int row = 0; row < rows; row++) {
+                int columns = 1 + random.nextInt(5);
+                for (int column = 0; column < columns; column++) {
+                    if (column > 0) {
+                        csv.append(',');
+                    }
+                    csv.append(randomField(random));
+                }
+                csv.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+            }
+            assertSameRowsAsOpenCsv(csv.toString());
+        }
+    }
+
+    private static String randomField(Random random) {
+        String[] plain = {"loan", "status", " ", "42", "Grüße", "🙂", "\\\\", "\\,", "x"};
+        String[] quotedOnly = {",", "\"\"", "\n", "\r\n", "\\\""};
+        boolean quoted = random.nextBoolean();
+        StringBuilder field = new StringBuilder();
+        int parts = random.nextInt(6);
+        for (int i = 0; i < parts; i++) {
+            field.append(quoted && random.nextInt(3) == 0
+                    ? quotedOnly[random.nextInt(quotedOnly.length)]
+                    : plain[random.nextInt(plain.length)]);
+        }
+        return quoted ? "\"" + field + "\"" : field.toString();
+    }
+
+    private void assertSameRowsAsOpenCsv(String csv) throws IOException {
+        Path file = Files.writeString(dir.resolve("messages.csv"), csv, StandardCharsets.UTF_8);
+        List<List<String>> expected;
+        try (InputStream input = Files.newInputStream(file)) {
+            expected = rows(new OpenCsvRowSource(input));
+        }
+        for (long segmentSize : SEGMENT_SIZES) {
+            List<List<String>> actual = rows(new MappedCsvRowSource(file, segmentSize, 3));
+            assertThat(actual).as("segments of %d bytes over %s", segmentSize, csv).isEqualTo(expected);
+        }
+    }
+
+    private static List<List<String>> rows(CsvRowSource source) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (source) {
+            CsvMessageRow row;
+            while ((row = source.next()) != null) {
+                rows.add(List.of(row.getUserId(), row.getTimestamp(), row.getBody()));
+            }
+        }
+        return rows;
+    }
+}
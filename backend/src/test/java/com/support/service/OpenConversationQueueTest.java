@@ -0,0 +1,142 @@
+package com.support.service;
+
+import com.support.dto.ConversationDTO;
+import com.support.model.Conversation;
+import com.support.model.Conversation.ConversationStatus;
+import com.support.model.Customer;
+import com.support.model.Message;
+import com.support.model.Message.SenderType;
+import com.support.repository.ConversationRepository;
+import com.support.repository.CustomerRepository;
+import com.support.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * With write-behind off, header changes are flushed from the afterCommit callbacks
+ * of the transaction that made them, while its persistence context, holding the
+ * conversation as it was before the flush, is still bound. The queue takes the
+ * flushed header fields, not that stale copy.
+ */
+@DataJpaTest(properties = "app.conversation-headers.write-behind=false")
+@Import({ConversationHeaderBuffer.class, OpenConversationQueue.class})
+// Writes go through transactions the test commits, as a request's do
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OpenConversationQueueTest {
+
+    @Autowired
+    private OpenConversationQueue queue;
+
+    @Autowired
+    private ConversationHeaderBuffer buffer;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        messageRepository.deleteAll();
+        conversationRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void queuedHeaderTakesTheFlushedFields() {
+        UUID id = conversation(ConversationStatus.OPEN).getId();
+        queue.rebuild();
+        assertThat(queuedHeader(id).getUnreadCount()).isZero();
+
+        customerMessage(id, false);
+
+        ConversationDTO header = queuedHeader(id);
+        Conversation stored = conversationRepository.findById(id).orElseThrow();
+        assertThat(stored.getUnreadCount()).isEqualTo(1);
+        assertThat(header.getUnreadCount()).isEqualTo(1);
+        assertThat(header.getLastMessageAt()).isEqualTo(stored.getLastMessageAt());
+        assertThat(header.getLastMessagePreview()).isEqualTo("Any update on my loan?");
+    }
+
+    @Test
+    void reopenedConversationIsQueuedWithTheFlushedFields() {
+        UUID id = conversation(ConversationStatus.RESOLVED).getId();
+        queue.rebuild();
+        assertThat(queue.getOpen(null)).isEmpty();
+
+        customerMessage(id, true);
+
+        ConversationDTO header = queuedHeader(id);
+        Conversation stored = conversationRepository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(ConversationStatus.OPEN);
+        assertThat(header.getUnreadCount()).isEqualTo(1);
+        assertThat(header.getLastMessageAt()).isEqualTo(stored.getLastMessageAt());
+        assertThat(header.getLastMessagePreview()).isEqualTo("Any update on my loan?");
+    }
+
+    // As MessageService.addMessageToConversation: the conversation is loaded into the transaction's
+    // persistence context, and the header changes are handed over for after commit
+    private void customerMessage(UUID conversationId, boolean reopen) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Conversation conversation = conversationRepository.findById(conversationId).orElseThrow();
+            if (reopen) {
+                conversation.setStatus(ConversationStatus.OPEN);
+            }
+            Message message = messageRepository.save(Message.builder()
+                    .conversation(conversation)
+                    .senderType(SenderType.CUSTOMER)
+                    .content("Any update on my loan?")
+                    .isRead(false)
+                    .build());
+            buffer.customerMessageAfterCommit(conversationId, message.getCreatedAt(), message.getContent());
+            queue.updateAfterCommit(conversation);
+        });
+    }
+
+    private ConversationDTO queuedHeader(UUID conversationId) {
+        return queue.getOpen(null).stream()
+                .filter(header -> header.getId().equals(conversationId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Conversation conversation(ConversationStatus status) {
+        Customer customer = customerRepository.save(Customer.builder()
+                .name("Customer " + UUID.randomUUID())
+                .build());
+        return conversationRepository.save(Conversation.builder()
+                .customer(customer)
+                .subject("Loan status")
+                .status(status)
+                .unreadCount(0)
+                .lastMessageAt(LocalDateTime.now().minusDays(1))
+                .build());
+    }
+}
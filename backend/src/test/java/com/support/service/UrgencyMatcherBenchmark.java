@@ -0,0 +1,108 @@
+package com.support.service;
+
+import com.support.service.UrgencyDetectionService.UrgencyResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of the compiled matcher against the keyword loop it replaced
+ * (UrgencyMatcherTest.keywordLoop) on long messages, most of them keyword-free,
+ * which is the loop's worst case: every keyword is searched for over the whole text.
+ * <p>
+ * Not part of the normal test run (surefire only picks up *Test classes). Run it with
+ * <pre>
+ * mvn test -Dtest=UrgencyMatcherBenchmark [-Dbenchmark.messages=2000] [-Dbenchmark.message-chars=4000]
+ * </pre>
+ */
+class UrgencyMatcherBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 2_000);
+    private static final int MESSAGE_CHARS = Integer.getInteger("benchmark.message-chars", 4_000);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 10);
+
+    private static final String[] FILLER = {
+            "hello", "my", "loan", "payment", "account", "the", "is", "was", "please", "thanks",
+            "approval", "received", "when", "how", "long", "not", "frau", "urgen", "stat", "hel",
+            "wait", "pend", "block", "bursement", "café", "Grüße", "straße", "12345", "₹5000", "🙂"
+    };
+
+    // Built-in rules only: the rules file is loaded by @PostConstruct, which is not called here
+    private final UrgencyDetectionService service = new UrgencyDetectionService(new DefaultResourceLoader());
+
+    @Test
+    void matcherAgainstKeywordLoopOnLongMessages() {
+        List<String> messages = longMessages(new Random(42));
+        long chars = 0;
+        for (String message : messages) {
+            chars += message.length();
+        }
+
+        double loopSeconds = bestOf(messages, UrgencyMatcherTest::keywordLoop);
+        double matcherSeconds = bestOf(messages, service::analyzeUrgency);
+
+        System.out.printf(Locale.ROOT, "%nUrgency scoring, %d messages of ~%d chars, best of %d rounds%n",
+                MESSAGES, MESSAGE_CHARS, ROUNDS);
+        report("keyword loop", loopSeconds, chars);
+        report("UrgencyMatcher", matcherSeconds, chars);
+        System.out.printf(Locale.ROOT, "speedup: %.1fx%n", loopSeconds / matcherSeconds);
+
+        // Same scores, so the two timings are of the same work
+        for (String message : messages) {
+            assertThat(service.analyzeUrgency(message).getScore())
+                    .isEqualTo(UrgencyMatcherTest.keywordLoop(message).getScore());
+        }
+    }
+
+    /**
+     * Filler words up to the target length; one message in four has a keyword
+     * somewhere in it, upper-cased half the time.
+     */
+    private static List<String> longMessages(Random random) {
+        List<UrgencyMatcher.Rule> rules = UrgencyDetectionService.defaultRules();
+        List<String> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            StringBuilder message = new StringBuilder(MESSAGE_CHARS + 32);
+            int keywordAt = random.nextInt(4) == 0 ? random.nextInt(MESSAGE_CHARS) : -1;
+            while (message.length() < MESSAGE_CHARS) {
+                if (keywordAt >= 0 && message.length() >= keywordAt) {
+                    String keyword = rules.get(random.nextInt(rules.size())).getKeyword();
+                    message.append(random.nextBoolean() ? keyword.toUpperCase(Locale.ROOT) : keyword);
+                    keywordAt = -1;
+                } else {
+                    message.append(FILLER[random.nextInt(FILLER.length)]);
+                }
+                message.append(random.nextInt(10) == 0 ? ". " : " ");
+            }
+            messages.add(message.toString());
+        }
+        return messages;
+    }
+
+    private static double bestOf(List<String> messages, Function<String, UrgencyResult> scorer) {
+        double best = Double.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (String message : messages) {
+                sink += scorer.apply(message).getScore();
+            }
+            best = Math.min(best, (System.nanoTime() - started) / 1e9);
+        }
+        // Keeps the scoring from being optimised away
+        assertThat(sink).isGreaterThan(0);
+        return best;
+    }
+
+    private static void report(String name, double seconds, long chars) {
+        System.out.printf(Locale.ROOT, "%-16s %10.0f msg/s %8.1f Mchar/s%n",
+                name, MESSAGES / seconds, chars / seconds / 1e6);
+    }
+}
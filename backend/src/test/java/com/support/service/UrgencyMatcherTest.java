@@ -0,0 +1,155 @@
+package com.support.service;
+
+import com.support.model.Conversation.UrgencyLevel;
+import com.support.service.UrgencyDetectionService.UrgencyResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The compiled matcher scores every message as the keyword loop it replaced
+ * did: lower-case the message, then return the first rule whose keyword it
+ * contains, in rule order (critical, high, medium).
+ */
+class UrgencyMatcherTest {
+
+    private static final List<UrgencyMatcher.Rule> RULES = UrgencyDetectionService.defaultRules();
+
+    private static final String[] FILLER = {
+            "hello", "my", "loan", "payment", "account", "the", "is", "was", "please", "thanks",
+            "approval", "rejected", "received", "when", "how", "long", "not", "frau", "urgen",
+            "stat", "hel", "wait", "pend", "sus", "block", "dis", "bursement", "café", "Grüße",
+            "straße", "Kelvin", "12345", "₹5000", "🙂", "\u0130", "\u0130SSUE", "unauthor\u0130zed"
+    };
+
+    private static final String[] SEPARATORS = {" ", "  ", "\n", "\r\n", "\t", ", ", ". ", "!", "?", "-", ""};
+
+    // Built-in rules only: the rules file is loaded by @PostConstruct, which is not called here
+    private final UrgencyDetectionService service = new UrgencyDetectionService(new DefaultResourceLoader());
+
+    @Test
+    void everyKeywordScoresAsItsRule() {
+        for (UrgencyMatcher.Rule rule : RULES) {
+            String keyword = rule.getKeyword();
+            assertSameAsKeywordLoop(keyword);
+            assertSameAsKeywordLoop(keyword.toUpperCase());
+            assertSameAsKeywordLoop("Hi, " + keyword + " here");
+            assertThat(service.analyzeUrgency("xx" + keyword + "yy").getReason()).isEqualTo(rule.getReason());
+        }
+    }
+
+    @Test
+    void higherLevelWinsWhateverItsPosition() {
+        assertSameAsKeywordLoop("Please help, my card was stolen");
+        assertSameAsKeywordLoop("URGENT: waiting on loan approval, looks like FRAUD");
+        assertThat(service.analyzeUrgency("help, my account was hacked").getLevel()).isEqualTo(UrgencyLevel.CRITICAL);
+    }
+
+    @Test
+    void earlierKeywordWinsWithinALevel() {
+        // "status" comes before "help" in the medium list, whatever the message order
+        assertSameAsKeywordLoop("help me with the status");
+        assertThat(service.analyzeUrgency("help me with the status").getReason()).isEqualTo("Medium priority: status");
+        assertSameAsKeywordLoop("blocked and urgent");
+        assertSameAsKeywordLoop("emergency: hacked and stolen");
+    }
+
+    @Test
+    void overlappingAndPartialKeywords() {
+        assertSameAsKeywordLoop("loan approvalloan rejected");
+        assertSameAsKeywordLoop("loan  approval");
+        assertSameAsKeywordLoop("payment faile");
+        assertSameAsKeywordLoop("not receivednot received");
+        assertSameAsKeywordLoop("unauthorize");
+        assertSameAsKeywordLoop("hhhhelp");
+        assertSameAsKeywordLoop("when wil");
+    }
+
+    @Test
+    void charsThatLowerCaseToSeveralChars() {
+        // U+0130 lower-cases to "i" plus a combining dot (to a plain "i" in Turkish), so outside
+        // Turkish neither matches "issue" or "unauthorized"
+        assertSameAsKeywordLoop("\u0130SSUE here");
+        assertSameAsKeywordLoop("unauthor\u0130zed");
+        assertSameAsKeywordLoop("HELP\u0130");
+        assertSameAsKeywordLoop("\u0130\u0130ssue \u0130ssue");
+    }
+
+    @Test
+    void blankAndKeywordFreeMessages() {
+        assertSameAsKeywordLoop(null);
+        assertSameAsKeywordLoop("");
+        assertSameAsKeywordLoop(" \t\r\n ");
+        assertSameAsKeywordLoop("Thanks, all good now");
+        assertSameAsKeywordLoop("Grüße aus München, café straße");
+    }
+
+    @Test
+    void generatedMessagesScoreAsTheKeywordLoop() {
+        Random random = new Random(42);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            messages.add(randomMessage(random));
+        }
+        for (String message : messages) {
+            assertSameAsKeywordLoop(message);
+        }
+        // The fork-join batch path scores the same as one message at a time
+        List<UrgencyResult> batch = service.analyzeUrgencyBatch(messages, 64);
+        for (int i = 0; i < messages.size(); i++) {
+            UrgencyResult single = service.analyzeUrgency(messages.get(i));
+            assertThat(batch.get(i).getScore()).isEqualTo(single.getScore());
+            assertThat(batch.get(i).getReason()).isEqualTo(single.getReason());
+        }
+    }
+
+    private static String randomMessage(Random random) {
+        StringBuilder message = new StringBuilder();
+        int words = random.nextInt(30);
+        for (int w = 0; w < words; w++) {
+            String word = random.nextInt(8) == 0
+                    ? RULES.get(random.nextInt(RULES.size())).getKeyword()
+                    : FILLER[random.nextInt(FILLER.length)];
+            message.append(randomCase(word, random));
+            message.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        return message.toString();
+    }
+
+    private static String randomCase(String word, Random random) {
+        StringBuilder cased = new StringBuilder(word.length());
+        for (char c : word.toCharArray()) {
+            cased.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+        }
+        return cased.toString();
+    }
+
+    private void assertSameAsKeywordLoop(String message) {
+        UrgencyResult expected = keywordLoop(message);
+        UrgencyResult actual = service.analyzeUrgency(message);
+        assertThat(actual.getScore()).as("score of %s", message).isEqualTo(expected.getScore());
+        assertThat(actual.getLevel()).as("level of %s", message).isEqualTo(expected.getLevel());
+        assertThat(actual.getReason()).as("reason of %s", message).isEqualTo(expected.getReason());
+    }
+
+    /**
+     * The scoring before UrgencyMatcher: one contains check per keyword, in rule order
+     */
+    static UrgencyResult keywordLoop(String messageContent) {
+        if (messageContent == null || messageContent.trim().isEmpty()) {
+            return new UrgencyResult(0, UrgencyLevel.LOW, "No content");
+        }
+        String content = messageContent.toLowerCase();
+        for (UrgencyMatcher.Rule rule : RULES) {
+            if (content.contains(rule.getKeyword())) {
+                return new UrgencyResult(rule.getScore(), rule.getLevel(), rule.getReason());
+            }
+        }
+        return new UrgencyResult(20, UrgencyLevel.LOW, "General inquiry");
+    }
+}
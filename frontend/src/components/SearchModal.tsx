@@ -3,7 +3,7 @@ import { useQuery } from '@tanstack/react-query';
 import { Search, X, MessageSquare, User, AlertCircle } from 'lucide-react';
 import { searchApi, conversationApi } from '../services/api';
 import { useStore } from '../store/useStore';
-import type { Customer, Message } from '../types';
+import type { Customer, MessageSnippet } from '../types';
 
 interface SearchModalProps {
   onClose: () => void;
@@ -46,7 +46,7 @@ export default function SearchModal({ onClose }: SearchModalProps) {
   };
 
   // Handle message click - load the conversation containing this message
-  const handleMessageClick = async (message: Message) => {
+  const handleMessageClick = async (message: MessageSnippet) => {
     setIsNavigating(true);
     setError(null);
     try {
@@ -64,6 +64,23 @@ export default function SearchModal({ onClose }: SearchModalProps) {
     }
   };
 
+  // Snippet text with the server-provided match ranges highlighted
+  const renderSnippet = (msg: MessageSnippet) => {
+    const parts: React.ReactNode[] = [];
+    let pos = 0;
+    msg.highlights.forEach(([start, end], i) => {
+      if (start > pos) parts.push(msg.snippet.slice(pos, start));
+      parts.push(
+        <mark key={i} className="bg-yellow-500/30 text-white rounded px-0.5">
+          {msg.snippet.slice(start, end)}
+        </mark>
+      );
+      pos = end;
+    });
+    parts.push(msg.snippet.slice(pos));
+    return parts;
+  };
+
   return (
     <div className="fixed inset-0 bg-black/50 flex items-start justify-center pt-20 z-50 p-4">
       <div className="w-full max-w-lg bg-slate-800 rounded-xl">
@@ -153,7 +170,7 @@ export default function SearchModal({ onClose }: SearchModalProps) {
                         >
                           <MessageSquare className="w-4 h-4 text-gray-400 mt-1 flex-shrink-0" />
                           <div className="flex-1 min-w-0">
-                            <p className="text-sm text-white line-clamp-2">{msg.content}</p>
+                            <p className="text-sm text-white line-clamp-2">{renderSnippet(msg)}</p>
                             <p className="text-xs text-gray-500 mt-1">
                               From: {msg.senderName || 'Unknown'}
                             </p>
@@ -139,15 +139,21 @@ export const cannedMessageApi = {
     const response = await api.get('/canned-messages/categories');
     return response.data;
   },
+
+  // Autocomplete a typed shortcut or title prefix (e.g. "/gre")
+  autocomplete: async (prefix: string, limit = 5): Promise<CannedMessage[]> => {
+    const response = await api.get('/canned-messages/autocomplete', { params: { prefix, limit } });
+    return response.data;
+  },
 };
 
 /**
  * Search API endpoints
  */
 export const searchApi = {
-  // Global search
+  // Global search (messages come back as highlighted snippets)
   global: async (query: string): Promise<SearchResult> => {
-    const response = await api.get('/search', { params: { query } });
+    const response = await api.get('/search', { params: { query, mode: 'snippet' } });
     return response.data;
   },
 };
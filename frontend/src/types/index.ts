@@ -42,6 +42,7 @@ export interface Conversation {
   urgencyReason: string | null;
   urgencyLevel: UrgencyLevel;
   unreadCount: number;
+  lastReadAt: string | null;
   lastMessageAt: string;
   lastMessagePreview: string | null;
   createdAt: string;
@@ -69,6 +70,21 @@ export interface Message {
 
 export type SenderType = 'CUSTOMER' | 'AGENT' | 'SYSTEM';
 
+// Search hit excerpt (mode=snippet); highlights are [start, end) ranges in snippet
+export interface MessageSnippet {
+  id: string;
+  conversationId: string;
+  senderId: string | null;
+  senderType: SenderType;
+  senderName: string | null;
+  snippet: string;
+  highlights: [number, number][];
+  contentLength: number;
+  isRead: boolean;
+  isCannedResponse: boolean;
+  createdAt: string;
+}
+
 /**
  * Canned message template
  */
@@ -104,8 +120,10 @@ export interface ReplyMessageRequest {
  * Search result
  */
 export interface SearchResult {
-  messages: Message[];
+  messages: MessageSnippet[];
   messagesTotal: number;
   customers: Customer[];
   customersTotal: number;
+  partial: boolean;      // true when a source missed the search deadline
+  timedOut: string[];    // sources left out ("messages", "customers")
 }